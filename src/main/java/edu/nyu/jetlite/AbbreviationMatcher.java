@@ -0,0 +1,170 @@
+// -*- tab-width: 4 -*-
+// Title:         JetLite
+// Version:       1.00
+// Copyright (c): 2017
+// Author:        Ralph Grishman
+// Description:   A lightweight Java-based Information Extraction Tool
+
+package edu.nyu.jetlite;
+
+import edu.nyu.jetlite.tipster.*;
+import java.util.*;
+import java.io.*;
+
+/**
+ *  A set of abbreviations compiled into a trie, which finds the longest
+ *  abbreviation beginning at a given position of a document in a single
+ *  pass over its characters, however many abbreviations there are.
+ *
+ *  The trie is held in arrays:  the edges leaving each node are stored
+ *  together, sorted by character, and found by binary search.
+ */
+
+public class AbbreviationMatcher {
+
+    // for node n, its edges are firstEdge[n] up to firstEdge[n+1]
+    private int[] firstEdge;
+    private char[] edgeChar;
+    private int[] edgeTarget;
+    // true if the path to node n spells an abbreviation
+    private boolean[] isEnd;
+    // the length of the longest abbreviation
+    private int maxLength;
+    // true if some abbreviation contains whitespace
+    private boolean spansWhitespace;
+
+    /**
+     *  Creates a matcher for the abbreviations in 'abbreviations'.
+     */
+
+    public AbbreviationMatcher (Collection<String> abbreviations) {
+	// build the trie with a map per node, then pack it into arrays
+	List<TreeMap<Character, Integer>> children = new ArrayList<TreeMap<Character, Integer>>();
+	List<Boolean> ends = new ArrayList<Boolean>();
+	children.add(new TreeMap<Character, Integer>());
+	ends.add(false);
+	for (String abbrev : abbreviations) {
+	    if (abbrev.isEmpty())
+		continue;
+	    maxLength = Math.max(maxLength, abbrev.length());
+	    for (int i = 0; i < abbrev.length(); i++)
+		if (Character.isWhitespace(abbrev.charAt(i)))
+		    spansWhitespace = true;
+	    int node = 0;
+	    for (int i = 0; i < abbrev.length(); i++) {
+		Integer next = children.get(node).get(abbrev.charAt(i));
+		if (next == null) {
+		    next = children.size();
+		    children.add(new TreeMap<Character, Integer>());
+		    ends.add(false);
+		    children.get(node).put(abbrev.charAt(i), next);
+		}
+		node = next;
+	    }
+	    ends.set(node, true);
+	}
+	int nodes = children.size();
+	firstEdge = new int[nodes + 1];
+	edgeChar = new char[nodes - 1];
+	edgeTarget = new int[nodes - 1];
+	isEnd = new boolean[nodes];
+	int e = 0;
+	for (int n = 0; n < nodes; n++) {
+	    firstEdge[n] = e;
+	    for (Map.Entry<Character, Integer> edge : children.get(n).entrySet()) {
+		edgeChar[e] = edge.getKey();
+		edgeTarget[e] = edge.getValue();
+		e++;
+	    }
+	    isEnd[n] = ends.get(n);
+	}
+	firstEdge[nodes] = e;
+    }
+
+    /**
+     *  Reads a list of abbreviations, one per line, from 'fileName'.
+     *  Blank lines and lines beginning with '#' are ignored.
+     */
+
+    public static List<String> readAbbreviations (String fileName) throws IOException {
+	List<String> result = new ArrayList<String>();
+	BufferedReader reader = new BufferedReader(new FileReader(fileName));
+	String line;
+	while ((line = reader.readLine()) != null) {
+	    line = line.trim();
+	    if (line.length() > 0 && !line.startsWith("#"))
+		result.add(line);
+	}
+	reader.close();
+	return result;
+    }
+
+    /**
+     *  If an abbreviation begins at offset 'posn' of 'doc', returns the
+     *  length of the longest one, else returns -1.
+     */
+
+    public int match (Document doc, int posn) {
+	int best = -1;
+	int node = 0;
+	int length = doc.length();
+	for (int i = posn; i < length; i++) {
+	    node = child(node, doc.charAt(i));
+	    if (node < 0)
+		break;
+	    if (isEnd[node])
+		best = i + 1 - posn;
+	}
+	return best;
+    }
+
+    /**
+     *  If an abbreviation begins at 'posn' of 'chars', ending no later than
+     *  'limit', returns the length of the longest one, else returns -1.
+     */
+
+    public int match (char[] chars, int posn, int limit) {
+	int best = -1;
+	int node = 0;
+	for (int i = posn; i < limit; i++) {
+	    node = child(node, chars[i]);
+	    if (node < 0)
+		break;
+	    if (isEnd[node])
+		best = i + 1 - posn;
+	}
+	return best;
+    }
+
+    /**
+     *  Returns the length of the longest abbreviation.
+     */
+
+    public int maxLength () {
+	return maxLength;
+    }
+
+    /**
+     *  Returns true if some abbreviation contains whitespace.
+     */
+
+    public boolean spansWhitespace () {
+	return spansWhitespace;
+    }
+
+    private int child (int node, char c) {
+	int lo = firstEdge[node];
+	int hi = firstEdge[node + 1] - 1;
+	while (lo <= hi) {
+	    int mid = (lo + hi) >>> 1;
+	    char m = edgeChar[mid];
+	    if (m < c)
+		lo = mid + 1;
+	    else if (m > c)
+		hi = mid - 1;
+	    else
+		return edgeTarget[mid];
+	}
+	return -1;
+    }
+}
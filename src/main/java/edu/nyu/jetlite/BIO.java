@@ -8,6 +8,7 @@
 package edu.nyu.jetlite;
 
 import edu.nyu.jetlite.tipster.*;
+import java.util.*;
 
 /**
  *  Methods to support BIO tagging.
@@ -118,6 +119,7 @@ public class BIO {
 	int len = response.length;
 	int responseStart = -1;
 	String responseGroupType = "";
+	List<Annotation> names = new ArrayList<Annotation>();
 	for (int i=0; i < len; i++) {
 	    String responseTag = response[i].intern();
 	    String responsePrefix = responseTag.substring(0, 1).intern();
@@ -133,7 +135,7 @@ public class BIO {
 	    boolean responseBegin = (responseStart<0 || responseEnd) && (responsePrefix=="B" || responsePrefix=="I");
 	    if (responseEnd) {
 		Enamex t = new Enamex (new Span (spans[responseStart].start(), spans[i-1].end()));
-		doc.addAnnotation(t);
+		names.add(t);
 		t.setNameType(responseGroupType);
 	    }
 	    if (responseBegin) {
@@ -143,6 +145,7 @@ public class BIO {
 	    else if (responseEnd)
 		responseStart = -1;
 	}
+	doc.addAnnotations(names);
     }
 
 }
@@ -44,22 +44,26 @@ public class Coref extends Annotator {
 
     static public List<Mention> gatherMentions (Document doc, Span span) {
 	List<Mention> mentions = new ArrayList<Mention>();
+	TokenTable table = doc.tokenTable();
 	int posn = span.start();
 	posn = doc.skipWhitespace(posn, span.end());
+	int token = doc.tokenIndexAt(posn);
 	while (posn < span.end()) {
 	    List<Enamex> v = (List) doc.annotationsAt(posn, "enamex");
 	    if (v != null && !v.isEmpty()) {
 		Enamex a = (Enamex) v.get(0);
 		mentions.add(a);
 		posn = a.end();
+		token = doc.tokenIndexAt(posn);
 	    } else {
-		Token a = (Token) doc.tokenAt(posn);
-		if (a == null)
+		if (token < 0)
 		    break;
-		String pos =  a.getPos();
+		// only tokens which are mentions need a Token object
+		String pos = table.pos(token);
 		if (npHeads.contains(pos))
-		    mentions.add(a);
-		posn = a.end();
+		    mentions.add(doc.token(token));
+		posn = table.end(token);
+		token = doc.nextTokenIndex(token);
 	    }
 	}
 	return mentions;
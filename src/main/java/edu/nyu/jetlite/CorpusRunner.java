@@ -0,0 +1,285 @@
+// -*- tab-width: 4 -*-
+// Title:         JetLite
+// Version:       1.00
+// Copyright (c): 2017
+// Author:        Ralph Grishman
+// Description:   A lightweight Java-based Information Extraction Tool
+
+package edu.nyu.jetlite;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
+import java.nio.charset.Charset;
+import edu.nyu.jetlite.tipster.*;
+
+/**
+ *  Processes a corpus of documents with a Hub configuration, several
+ *  documents at a time on a number of worker threads.  Each thread has its
+ *  own {@link Pipeline};  the MaxEnt models are loaded once and shared by
+ *  all the threads.
+ *  <p>
+ *  Besides the Hub properties (<CODE>annotators</CODE> and so on), the
+ *  following properties are read:
+ *  <ul>
+ *  <li> <CODE>CorpusRunner.threads</CODE>:  the number of worker threads
+ *       (by default, the number of processors)
+ *  <li> <CODE>CorpusRunner.shards</CODE>:  the number of output files;  if
+ *       0 (the default), each document is written to a file of its own,
+ *       named after the document
+ *  <li> <CODE>CorpusRunner.format</CODE>:  <CODE>text</CODE> (the default)
+ *       to write each document as it is printed by Hub, or
+ *       <CODE>archive</CODE> to write {@link DocumentArchive}s
+ *  <li> <CODE>CorpusRunner.ordered</CODE>:  if <CODE>true</CODE>, the
+ *       documents are written in the order in which they are listed, the
+ *       first ones to the first shard and so on;  otherwise each is written
+ *       as soon as it has been processed
+ *  <li> <CODE>CorpusRunner.docDir</CODE>:  the directory holding the
+ *       documents named in a document list (by default, the current
+ *       directory)
+ *  </ul>
+ *  In a text shard, each document is preceded by a line
+ *  <CODE>&lt;DOC </CODE><I>name</I><CODE>&gt;</CODE>.
+ */
+
+public class CorpusRunner {
+
+    private Properties config;
+
+    private int threads;
+
+    private int shards;
+
+    private boolean archive;
+
+    private boolean ordered;
+
+    // the documents processed by one worker, and written by the runner
+    private static class Result {
+	int index;
+	String name;
+	byte[] bytes;
+    }
+
+    public CorpusRunner (Properties config) {
+	this.config = config;
+	threads = Integer.parseInt(config.getProperty("CorpusRunner.threads",
+						      Integer.toString(Runtime.getRuntime().availableProcessors())));
+	shards = Integer.parseInt(config.getProperty("CorpusRunner.shards", "0"));
+	archive = "archive".equals(config.getProperty("CorpusRunner.format"));
+	ordered = "true".equals(config.getProperty("CorpusRunner.ordered"));
+    }
+
+    /**
+     *  Processes a corpus.  Takes 3 arguments:  props  input  outputDir <br>
+     *  where <br>
+     *  props = the Hub properties file <br>
+     *  input = a directory holding the documents, or a file listing them,
+     *          one per line <br>
+     *  outputDir = the directory to hold the output files
+     */
+
+    public static void main (String[] args) throws IOException {
+	if (args.length != 3) {
+	    System.out.println ("Error, 3 arguments required:");
+	    System.out.println ("         props input outputDir");
+	    System.exit(1);
+	}
+	Properties config = new Properties();
+	config.load(new FileReader(args[0]));
+	File input = new File(args[1]);
+	String docDir = config.getProperty("CorpusRunner.docDir");
+	File dir = input.isDirectory() ? input : (docDir == null) ? null : new File(docDir);
+	new CorpusRunner(config).run(listDocuments(input), dir, new File(args[2]));
+    }
+
+    /**
+     *  Returns the names of the documents in <I>input</I>:  the files in
+     *  it, in order, if it is a directory, else the lines of the file.
+     */
+
+    public static List<String> listDocuments (File input) throws IOException {
+	List<String> names = new ArrayList<String>();
+	if (input.isDirectory()) {
+	    File[] files = input.listFiles();
+	    Arrays.sort(files);
+	    for (File file : files)
+		if (file.isFile())
+		    names.add(file.getName());
+	} else {
+	    BufferedReader reader = new BufferedReader(new FileReader(input));
+	    String line;
+	    while ((line = reader.readLine()) != null) {
+		line = line.trim();
+		if (line.length() > 0)
+		    names.add(line);
+	    }
+	    reader.close();
+	}
+	return names;
+    }
+
+    /**
+     *  Processes the documents <I>names</I> in directory <I>dir</I> (or, if
+     *  <I>dir</I> is null, the current directory), writing the results to
+     *  directory <I>outputDir</I>.
+     */
+
+    public void run (final List<String> names, final File dir, File outputDir) throws IOException {
+	outputDir.mkdirs();
+	final DocumentPool pool = new DocumentPool(threads);
+	final DocumentLoader loader =
+	    new DocumentLoader(Charset.forName(config.getProperty("charset", "UTF-8")));
+	final ThreadLocal<Pipeline> pipelines = new ThreadLocal<Pipeline>();
+	Output output = new Output(outputDir, names.size());
+	ExecutorService executor = Executors.newFixedThreadPool(threads);
+	CompletionService<Result> completed = new ExecutorCompletionService<Result>(executor);
+	// results in order, when ordered
+	ArrayDeque<Future<Result>> pending = new ArrayDeque<Future<Result>>();
+	// bounds the number of documents (and results) held at once
+	int window = 4 * threads;
+	int inFlight = 0;
+	try {
+	    for (int i = 0; i < names.size(); i++) {
+		final int index = i;
+		Callable<Result> task = new Callable<Result>() {
+		    public Result call () throws IOException {
+			Pipeline pipeline = pipelines.get();
+			if (pipeline == null) {
+			    pipeline = new Pipeline(config);
+			    pipelines.set(pipeline);
+			}
+			Result result = new Result();
+			result.index = index;
+			result.name = names.get(index);
+			Document doc = pool.acquire(new File(dir, result.name), loader);
+			try {
+			    pipeline.process(doc);
+			    result.bytes = archive ? DocumentWriter.toBytes(doc)
+				: doc.toString().getBytes("UTF-8");
+			} finally {
+			    pool.release(doc);
+			}
+			return result;
+		    }
+		};
+		if (inFlight == window) {
+		    output.write(next(ordered ? pending.remove() : completed.take()));
+		    inFlight--;
+		}
+		if (ordered)
+		    pending.add(executor.submit(task));
+		else
+		    completed.submit(task);
+		inFlight++;
+	    }
+	    for (; inFlight > 0; inFlight--)
+		output.write(next(ordered ? pending.remove() : completed.take()));
+	} catch (InterruptedException e) {
+	    throw new InterruptedIOException();
+	} finally {
+	    executor.shutdownNow();
+	    output.close();
+	}
+    }
+
+    private static Result next (Future<Result> future) throws IOException, InterruptedException {
+	try {
+	    return future.get();
+	} catch (ExecutionException e) {
+	    Throwable cause = e.getCause();
+	    if (cause instanceof IOException)
+		throw (IOException) cause;
+	    if (cause instanceof RuntimeException)
+		throw (RuntimeException) cause;
+	    throw new IOException(cause);
+	}
+    }
+
+    /**
+     *  Writes the results, one at a time, to the output files.
+     */
+
+    private class Output {
+
+	File outputDir;
+
+	int documents;
+
+	int written = 0;
+
+	// the open shards (null until first written), when sharded
+	OutputStream[] textShards;
+	DocumentArchive.Writer[] archiveShards;
+
+	Output (File outputDir, int documents) {
+	    this.outputDir = outputDir;
+	    this.documents = documents;
+	    if (shards > 0) {
+		textShards = new OutputStream[shards];
+		archiveShards = new DocumentArchive.Writer[shards];
+	    }
+	}
+
+	void write (Result result) throws IOException {
+	    if (shards == 0) {
+		writeDocument(result);
+	    } else {
+		// when ordered, shard k holds the k'th part of the list;
+		// otherwise the documents are dealt out in turn
+		int shard = ordered ? (int) ((long) result.index * shards / documents)
+		    : written % shards;
+		writeToShard(shard, result);
+	    }
+	    written++;
+	}
+
+	private void writeDocument (Result result) throws IOException {
+	    File file = new File(outputDir, result.name + (archive ? ".archive" : ".txt"));
+	    file.getParentFile().mkdirs();
+	    if (archive) {
+		DocumentArchive.Writer writer = new DocumentArchive.Writer(file);
+		try {
+		    writer.add(result.name, result.bytes);
+		} finally {
+		    writer.close();
+		}
+	    } else {
+		OutputStream out = new FileOutputStream(file);
+		try {
+		    out.write(result.bytes);
+		} finally {
+		    out.close();
+		}
+	    }
+	}
+
+	private void writeToShard (int shard, Result result) throws IOException {
+	    if (archive) {
+		if (archiveShards[shard] == null)
+		    archiveShards[shard] = new DocumentArchive.Writer(shardFile(shard));
+		archiveShards[shard].add(result.name, result.bytes);
+	    } else {
+		if (textShards[shard] == null)
+		    textShards[shard] = new BufferedOutputStream(new FileOutputStream(shardFile(shard)), 1 << 16);
+		textShards[shard].write(("<DOC " + result.name + ">\n").getBytes("UTF-8"));
+		textShards[shard].write(result.bytes);
+	    }
+	}
+
+	private File shardFile (int shard) {
+	    return new File(outputDir, "shard" + shard + (archive ? ".archive" : ".txt"));
+	}
+
+	void close () throws IOException {
+	    if (shards == 0)
+		return;
+	    for (int k = 0; k < shards; k++) {
+		if (textShards[k] != null)
+		    textShards[k].close();
+		if (archiveShards[k] != null)
+		    archiveShards[k].close();
+	    }
+	}
+    }
+}
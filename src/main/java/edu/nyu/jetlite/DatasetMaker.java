@@ -4,6 +4,7 @@ import edu.nyu.jet.aceJet.*;
 import edu.nyu.jetlite.tipster.Annotation;
 import edu.nyu.jetlite.tipster.Document;
 import edu.nyu.jetlite.tipster.Span;
+import edu.nyu.jetlite.tipster.XMLEraser;
 
 import java.io.*;
 import java.util.*;
@@ -21,7 +22,14 @@ import java.util.*;
  * 
  */
 public class DatasetMaker {
-    public DatasetMaker () {
+
+    // the pipeline applied to each document
+    private Pipeline preprocessor;
+
+    public DatasetMaker () throws IOException {
+        Properties config = new Properties();
+        config.setProperty("annotators", "token sentence");
+        preprocessor = new Pipeline(config);
     }
     
     public static void main (String[] args) throws IOException {
@@ -67,13 +75,11 @@ public class DatasetMaker {
 
         File docFile = new File(docFileName);
         Document doc = new Document(docFile);
-        doc.setText(EntityTagger.eraseXML(doc.text()));
+        XMLEraser.erase(doc);
         String apfFileName = docFileName.replace("sgm" , "apf.xml");
         AceDocument aceDoc = new AceDocument(docFileName, apfFileName);
         // --- tokenize and split
-        Properties config = new Properties();
-        config.setProperty("annotators", "token sentence");
-        doc = Hub.processDocument(doc, config);
+        doc = preprocessor.process(doc);
         // ---
         findEventMentions (aceDoc);
         findEntityMentions (aceDoc);
@@ -19,7 +19,7 @@ import edu.nyu.jetlite.tipster.*;
  *  interface to a dependency parser (currently the Tratz-Hovy parser).
  */
 
-public class DepParser extends Annotator {
+public class DepParser extends Annotator implements SentenceAnnotator {
 
     private static FullSystemWrapper fsw=null;
 
@@ -40,7 +40,7 @@ public class DepParser extends Annotator {
 	initWrapper(null, null, null, null, null, null, parseModelFile, null);
     }
     /**Initialize the Wrapper*/
-    private static void initWrapper(String prepositionModelFile, String nounCompoundModelFile,
+    private static synchronized void initWrapper(String prepositionModelFile, String nounCompoundModelFile,
 				    String possessivesModelFile, String srlArgsModelFile, 
 				    String srlPredicatesModelFile, String posModelFile, 
 				    String parseModelFile, String wnDir){
@@ -67,6 +67,14 @@ public class DepParser extends Annotator {
 	return doc;
     }
 
+    /**
+     *  Parses sentence 'sentence' of Document 'doc'.
+     */
+
+    public void annotateSentence (Document doc, Span sentence) {
+	parseSentence (doc, sentence);
+    }
+
     /**
      *  parse all the sentences in Document 'doc', returning a
      *  SyntacticRelationSet containing all the dependency relations.
@@ -91,12 +99,17 @@ public class DepParser extends Annotator {
 
     static String[] SPECIAL_TOKEN = new String[] {"enamex", "numex", "timex", "timex2", "term"};
 
+    private static int specialRank (Annotation a) {
+	return Arrays.asList(SPECIAL_TOKEN).indexOf(a.type());
+    }
+
     /**
      *  generate the dependency parse for a sentence, adding its arcs to
-     *  'relations'.
+     *  'relations'.  The parser is shared, so sentences are parsed one at
+     *  a time, whatever the number of threads.
      */
 
-    public static void parseSentence (Document doc, Span span) {
+    public static synchronized void parseSentence (Document doc, Span span) {
 	if (fsw == null) {
 	    System.out.println ("DepParser:  no model loaded");
 	    return;
@@ -105,30 +118,38 @@ public class DepParser extends Annotator {
 	List<Mention> annotations = new ArrayList<Mention>();
 	annotations.add(null); // don't use 0th entry
 	int tokenNum = 0;
+	TokenTable table = doc.tokenTable();
 	int posn = span.start();
 	posn = doc.skipWhitespace(posn, span.end());
+	int i = doc.tokenIndexAt(posn);
 	while (posn < span.end()) {
 	    tokenNum++;
-	    Mention tokenAnnotation = doc.tokenAt(posn);
-	    if (tokenAnnotation == null)
+	    if (i < 0)
 		return;
-	    // String pos = (String) tokenAnnotation.get("pos");
-	    String pos = (String) ((edu.nyu.jetlite.Token) tokenAnnotation).getPos();
-	    for (String s : SPECIAL_TOKEN) {
-		Vector<Annotation> va = doc.annotationsAt(posn, s);
-		if (va != null && va.size() > 0) {
-		    tokenAnnotation = (Mention) va.get(0);
-		    // treat all enamex's as proper nouns
-		    pos = "NNP";
-		    break;
-		}
+	    Mention tokenAnnotation = null;
+	    String pos = table.pos(i);
+	    Vector<Annotation> va = doc.annotationsAt(posn, SPECIAL_TOKEN);
+	    if (va != null) {
+		// if several start here, take the type listed first in SPECIAL_TOKEN
+		Annotation special = va.get(0);
+		for (Annotation a : va)
+		    if (specialRank(a) < specialRank(special))
+			special = a;
+		tokenAnnotation = (Mention) special;
+		// treat all enamex's as proper nouns
+		pos = "NNP";
 	    }
+	    if (tokenAnnotation == null)
+		tokenAnnotation = doc.token(i);
 	    String tokenText = doc.normalizedText(tokenAnnotation).replaceAll(" ", "_");
 	    tokens.add (new Token(tokenText, pos, tokenNum));
 	    annotations.add(tokenAnnotation);
 	    if (posn >= tokenAnnotation.end()) {
 		break;
 	    }
+	    // normally the next token is the next row of the token table
+	    i = (tokenAnnotation.end() == table.end(i)) ? doc.nextTokenIndex(i)
+		: doc.tokenIndexAt(tokenAnnotation.end());
 	    posn = tokenAnnotation.end();
 	}
 	Sentence sent = new Sentence(tokens);
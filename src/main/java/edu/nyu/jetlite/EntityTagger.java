@@ -31,6 +31,9 @@ public class EntityTagger extends Annotator {
 
 	GISModel model;
 
+	// the pipeline applied to each document before training or evaluation
+	Pipeline preprocessor;
+
 	public EntityTagger (Properties config) throws IOException {
 		modelFileName = config.getProperty("EntityTagger.model.fileName");
 	}
@@ -84,6 +87,22 @@ public class EntityTagger extends Annotator {
 		MaxEnt.buildModel(modelFileName);
 	}
 
+	/**
+	 *  Returns the pipeline which splits and tags each document, creating it
+	 *  when first needed, so that its models are loaded only once.
+	 */
+
+	private Pipeline preprocessor () throws IOException {
+		if (preprocessor == null) {
+			Properties config = new Properties();
+			config.setProperty("POStagger.model.fileName", "POSmodel");
+			config.setProperty("NEtagger.model.fileName", "NEmodel");
+			config.setProperty("annotators", "token sentence pos name");
+			preprocessor = new Pipeline(config);
+		}
+		return preprocessor;
+	}
+
 	/**
 	 *  Acquire training data from one Document in the training corpus.
 	 *
@@ -95,15 +114,11 @@ public class EntityTagger extends Annotator {
 	void learnFromDocument (String docFileName, PrintWriter eventWriter) throws IOException {
 		File docFile = new File(docFileName);
 		Document doc = new Document(docFile);
-		doc.setText(eraseXML(doc.text()));
+		XMLEraser.erase(doc);
 		String apfFileName = docFileName.replace("sgm" , "apf.xml");
 		AceDocument aceDoc = new AceDocument(docFileName, apfFileName);
 		// --- split and pos tag
-		Properties config = new Properties();
-		config.setProperty("POStagger.model.fileName", "POSmodel");
-		config.setProperty("NEtagger.model.fileName", "NEmodel");
-		config.setProperty("annotators", "token sentence pos name");
-		doc = Hub.processDocument(doc, config);
+		doc = preprocessor().process(doc);
 		//
 		findEntityMentions (aceDoc);
 		// loop over tokens
@@ -153,6 +168,7 @@ public class EntityTagger extends Annotator {
 	 *  In computing character offsets within a Document, Jet counts all characters.
 	 *  ACE does not count characters in XML tags.  To make the offsets compatible, we
 	 *  delete all XML tags from ACE training documents using eraseXML
+	 *  (or, for a Document, {@link XMLEraser#erase(Document) XMLEraser.erase})
 	 *
 	 *  @param  fileTextWithXML  the original ocument text
 	 *
@@ -160,16 +176,7 @@ public class EntityTagger extends Annotator {
 	 */
 
 	static String eraseXML (String fileTextWithXML) {
-		boolean inTag = false;
-		int length = fileTextWithXML.length();
-		StringBuffer fileText = new StringBuffer();
-		for (int i=0; i<length; i++) {
-			char c = fileTextWithXML.charAt(i);
-			if(c == '<') inTag = true;
-			if (!inTag) fileText.append(c);
-			if(c == '>') inTag = false;
-		}
-		return fileText.toString();
+		return new XMLEraser(fileTextWithXML).text();
 	}
 
 	static int correctEntities;
@@ -202,15 +209,11 @@ public class EntityTagger extends Annotator {
 	void evaluateOnDocument (String docFileName) throws IOException {
 		File docFile = new File(docFileName);
 		Document doc = new Document(docFile);
-		doc.setText(eraseXML(doc.text()));
+		XMLEraser.erase(doc);
 		String apfFileName = docFileName.replace("sgm" , "apf.xml");
 		AceDocument aceDoc = new AceDocument(docFileName, apfFileName);
 		// --- split and pos tag
-		Properties config = new Properties();
-		config.setProperty("POStagger.model.fileName", "POSmodel");
-		config.setProperty("NEtagger.model.fileName", "NEmodel");
-		config.setProperty("annotators", "token sentence pos name");
-		doc = Hub.processDocument(doc, config);
+		doc = preprocessor().process(doc);
 		//
 		findEntityMentions (aceDoc);
 		// loop over tokens
@@ -238,7 +241,7 @@ public class EntityTagger extends Annotator {
 
 	public Document annotate (Document doc, Span span) {
 		if (model == null)
-			model = MaxEnt.loadModel(modelFileName, "EntityTagger");
+			model = MaxEnt.sharedModel(modelFileName, "EntityTagger");
 		Vector<Annotation> entities = doc.annotationsOfType("entity");
 		if (entities == null)
 			return doc;
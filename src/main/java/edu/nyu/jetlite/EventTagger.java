@@ -29,6 +29,9 @@ public class EventTagger extends Annotator {
     // the MaxEnt model
     GISModel model;
 
+    // the pipeline applied to each document before training or evaluation
+    Pipeline preprocessor;
+
     /**
      *  Create a new EventTagger.
      *
@@ -85,6 +88,20 @@ public class EventTagger extends Annotator {
         MaxEnt.buildModel(modelFileName, 2);
     }
 
+    /**
+     *  Returns the pipeline which tokenizes and splits each document,
+     *  creating it when first needed.
+     */
+
+    private Pipeline preprocessor () throws IOException {
+        if (preprocessor == null) {
+            Properties config = new Properties();
+            config.setProperty("annotators", "token sentence");
+            preprocessor = new Pipeline(config);
+        }
+        return preprocessor;
+    }
+
     /**
      *  Acquire training data from one Document in the training corpus.
      *
@@ -96,13 +113,11 @@ public class EventTagger extends Annotator {
     void learnFromDocument (String docFileName, PrintWriter eventWriter) throws IOException {
         File docFile = new File(docFileName);
         Document doc = new Document(docFile);
-        doc.setText(EntityTagger.eraseXML(doc.text()));
+        XMLEraser.erase(doc);
         String apfFileName = docFileName.replace("sgm" , "apf.xml");
         AceDocument aceDoc = new AceDocument(docFileName, apfFileName);
         // --- tokenize and split
-        Properties config = new Properties();
-        config.setProperty("annotators", "token sentence");
-        doc = Hub.processDocument(doc, config);
+        doc = preprocessor().process(doc);
         // ---
         findEventMentions (aceDoc);
         findEntityMentions (aceDoc);
@@ -292,13 +307,11 @@ public class EventTagger extends Annotator {
     void evaluateOnDocument (String docFileName) throws IOException {
         File docFile = new File(docFileName);
         Document doc = new Document(docFile);
-        doc.setText(EntityTagger.eraseXML(doc.text()));
+        XMLEraser.erase(doc);
         String apfFileName = docFileName.replace("sgm" , "apf.xml");
         AceDocument aceDoc = new AceDocument(docFileName, apfFileName);
         // --- split and pos tag
-        Properties config = new Properties();
-        config.setProperty("annotators", "token sentence");
-        doc = Hub.processDocument(doc, config);
+        doc = preprocessor().process(doc);
         //  ---
         findEventMentions (aceDoc);
         // loop over tokens
@@ -335,7 +348,7 @@ public class EventTagger extends Annotator {
 
     public Document annotate (Document doc, Span span) {
         if (model == null)
-            model = MaxEnt.loadModel(modelFileName, "EventTagger");
+            model = MaxEnt.sharedModel(modelFileName, "EventTagger");
         Vector<Annotation> tokens = doc.annotationsOfType("token");
         if (tokens == null)
             return doc;
@@ -9,6 +9,7 @@ package edu.nyu.jetlite;
 
 import java.util.*;
 import java.io.*;
+import java.nio.charset.Charset;
 import edu.nyu.jetlite.tipster.*;
 
 public class Hub {
@@ -19,55 +20,69 @@ public class Hub {
 
 	config.load(new FileReader("props"));
 
+	if (args.length > 1) {
+	    List<File> files = new ArrayList<File>();
+	    for (String arg : args)
+		files.add(new File(arg));
+	    processDocuments (files, config, new DocumentConsumer() {
+		    public void accept (Document doc) {
+			System.out.println(doc);
+		    }
+		});
+	    return;
+	}
 	String documentFileName = args[0];
 	File documentFile = new File(documentFileName);
-	Document doc = new Document(documentFile);
+	Document doc = new DocumentLoader(Charset.forName(config.getProperty("charset", "UTF-8"))).load(documentFile);
 	    // "A title\n<TEXT>\nJohn, a noted lawyer, died. He was one of the best lawyers in New York.  </TEXT>");
 	processDocument (doc, config);
 	System.out.println(doc);
     }
 
-    public static Document processDocument (Document doc, Properties config) throws IOException {
+    /**
+     *  Receives each document processed by <CODE>processDocuments</CODE>.
+     */
+
+    public interface DocumentConsumer {
+	void accept (Document doc) throws IOException;
+    }
+
+    /**
+     *  Processes the documents in <I>files</I> one at a time, passing each
+     *  to <I>consumer</I> once it has been processed.  The Documents are
+     *  taken from a {@link DocumentPool} and reused as soon as
+     *  <I>consumer</I> returns, so <I>consumer</I> must not keep a Document
+     *  or any of its annotations.  The files are read by a
+     *  {@link DocumentLoader} in the character set given by property
+     *  <CODE>charset</CODE> (by default UTF-8), and all are processed by
+     *  one {@link Pipeline}.
+     */
 
-	Tokenizer tok = new Tokenizer(props(config, "Tokenizer"));
-	SentenceSplitter splitter = new SentenceSplitter(props(config, "Splitter"));
-	POStagger post = new POStagger(props(config, "POStagger"));
-	NEtagger names = new NEtagger(props(config, "NEtagger"));
-	DepParser parser = new DepParser(props(config, "DepParser"));
-	Coref coref = new Coref(props(config, "Coref"));
-	EntityTagger etagger = new EntityTagger(props(config, "EntityTagger"));
-	RelationTagger rtagger = new RelationTagger(props(config, "RelationTagger"));
-	EventTagger vtagger = new EventTagger(props(config, "EventTagger"));
-    
-	Span span = getTEXTspan(doc);
-
-	String annotatorProp = config.getProperty("annotators");
-	if (annotatorProp == null)
-	    System.out.println("annotators not specified");
-	String[] annotators = annotatorProp.split(" ");
-	for (String annotator : annotators) {
-	    if (annotator.equals("token"))
-		doc = tok.annotate(doc, span);
-	    else if (annotator.equals("sentence"))
-		doc = splitter.annotate(doc, span);
-	    else if (annotator.equals("pos"))
-		doc = post.annotate(doc, span);
-	    else if (annotator.equals("name"))
-		doc = names.annotate(doc, span);
-	    else if (annotator.equals("parse"))
-		doc = parser.annotate(doc, span);
-	    else if (annotator.equals("coref"))
-		doc = coref.annotate(doc, span);
-	    else if (annotator.equals("entity"))
-		doc = etagger.annotate(doc, span);
-	    else if (annotator.equals("relation"))
-		doc = rtagger.annotate(doc, span);
-	    else if (annotator.equals("event"))
-		doc = vtagger.annotate(doc, span);
-	    else System.out.println("Unknown annotator " + annotator);
+    public static void processDocuments (Iterable<File> files, Properties config,
+					 DocumentConsumer consumer) throws IOException {
+	DocumentPool pool = new DocumentPool(1);
+	DocumentLoader loader = new DocumentLoader(Charset.forName(config.getProperty("charset", "UTF-8")));
+	Pipeline pipeline = new Pipeline(config);
+	for (File file : files) {
+	    Document doc = pool.acquire(file, loader);
+	    try {
+		consumer.accept(pipeline.process(doc));
+	    } finally {
+		pool.release(doc);
+	    }
 	}
-    
-	return doc;
+    }
+
+    /**
+     *  Runs the annotators listed in property <CODE>annotators</CODE> over
+     *  the TEXT of <I>doc</I>, as set out for {@link Pipeline}.  The
+     *  annotators are created afresh for each call;  to process many
+     *  documents, create a Pipeline once and call its <CODE>process</CODE>
+     *  method for each.
+     */
+
+    public static Document processDocument (Document doc, Properties config) throws IOException {
+	return new Pipeline(config).process(doc);
     }
 
     /**
@@ -84,8 +99,14 @@ public class Hub {
 	return result;
     }
 
+    /**
+     *  Returns the span of the TEXT element of the document, or the
+     *  entire document if there is none.  The text is scanned for the
+     *  TEXT tag only once, however often this is called.
+     */
+
     public static Span getTEXTspan (Document doc) {
-	doc.annotateWithTag("TEXT");
+	TagScanner.TEXT.annotate(doc);
 	Vector<Annotation> text = doc.annotationsOfType("TEXT");
 	if (text != null)
 	    return text.get(0).span();
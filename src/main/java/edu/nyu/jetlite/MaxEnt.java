@@ -8,6 +8,8 @@
 package edu.nyu.jetlite;
 
 import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
 import opennlp.maxent.*;
 import opennlp.maxent.io.*;
 import opennlp.model.*;
@@ -33,6 +35,7 @@ public class MaxEnt {
 	    File outputFile = new File(modelFileName);
 	    GISModelWriter writer = new SuffixSensitiveGISModelWriter(model, outputFile);
 	    writer.persist();
+	    evictSharedModel(modelFileName);
 	} catch (Exception e) {
 	    System.out.print("Unable to create model due to exception: ");
 	    System.out.println(e);
@@ -48,6 +51,62 @@ public class MaxEnt {
 	buildModel (modelFileName, 1);
     }
 
+    // a model loaded by sharedModel, with the time its file was last
+    // modified when it was read
+    private static class SharedModel {
+	long lastModified;
+	GISModel model;
+    }
+
+    // the models loaded by sharedModel, by canonical path of the model file
+    private static Map<String, SharedModel> sharedModels = new HashMap<String, SharedModel>();
+
+    /**
+     *  Retrieve the max ent model from file 'modelFileName', loading it only
+     *  the first time it is requested.  The same model is returned to every
+     *  caller (and thread), so annotators may share it.  The model is read
+     *  again if its file has been modified (for example, by buildModel)
+     *  since it was loaded.
+     */
+
+    public static synchronized GISModel sharedModel (String modelFileName, String task) {
+	if (modelFileName == null)
+	    return loadModel(modelFileName, task);
+	File file = new File(modelFileName);
+	String key = canonicalPath(file);
+	long lastModified = file.lastModified();
+	SharedModel shared = sharedModels.get(key);
+	if (shared == null || shared.lastModified != lastModified) {
+	    GISModel model = loadModel(modelFileName, task);
+	    if (model == null) {
+		sharedModels.remove(key);
+		return null;
+	    }
+	    shared = new SharedModel();
+	    shared.lastModified = lastModified;
+	    shared.model = model;
+	    sharedModels.put(key, shared);
+	}
+	return shared.model;
+    }
+
+    /**
+     *  Drops the model on file 'modelFileName', if any, from the models kept
+     *  by sharedModel.
+     */
+
+    public static synchronized void evictSharedModel (String modelFileName) {
+	sharedModels.remove(canonicalPath(new File(modelFileName)));
+    }
+
+    private static String canonicalPath (File file) {
+	try {
+	    return file.getCanonicalPath();
+	} catch (IOException e) {
+	    return file.getAbsolutePath();
+	}
+    }
+
     /**
      *  Retrieve the max ent model.
      */
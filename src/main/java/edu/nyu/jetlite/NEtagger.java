@@ -18,7 +18,7 @@ import opennlp.model.*;
   *  A named entity tagger trained on the CoNLL English data.
   */
 
-public class NEtagger extends Annotator {
+public class NEtagger extends Annotator implements SentenceAnnotator {
 
     String modelFileName;
     
@@ -114,29 +114,41 @@ public class NEtagger extends Annotator {
 
     public void tagDocument (Document doc, Span span) {
 	if (model == null)
-	    model = MaxEnt.loadModel(modelFileName, "NEtagger");
-	Vector<Annotation> sentences = doc.annotationsOfType("sentence");
+	    model = MaxEnt.sharedModel(modelFileName, "NEtagger");
+	Vector<Annotation> sentences = doc.annotationsOfType("sentence", span);
+	if (sentences == null)
+	    return;
 	for (Annotation sentence : sentences) {
 	    tagSentence (doc, sentence);
 	}
     }
 
+    /**
+     *  Tags the tokens of sentence 'sentence' of Document 'doc'.
+     */
+
+    public void annotateSentence (Document doc, Span sentence) {
+	if (model == null)
+	    model = MaxEnt.sharedModel(modelFileName, "NEtagger");
+	tagSentence (doc, sentence);
+    }
+
     public void tagSentence (Document doc, Annotation sentence) {
-	int posn = sentence.start();
+	tagSentence (doc, sentence.span());
+    }
+
+    public void tagSentence (Document doc, Span sentence) {
 	 // collect tokens list
-	List<Annotation> tokens = new ArrayList<Annotation>();
-	Annotation token;
-	while ((token = doc.tokenAt(posn)) != null) {
-	    tokens.add(token);
-	    posn = token.end();
-	    if (posn >= sentence.end()) break;
-	}
-	int nTokens = tokens.size();
+	TokenTable table = doc.tokenTable();
+	int[] tokens = doc.tokenIndexes(sentence);
+	int nTokens = tokens.length;
 	String[] words = new String[nTokens];
 	Span[] spans = new Span[nTokens];
 	for (int i=0; i < nTokens; i++) {
-	    words[i] = doc.text(tokens.get(i)).trim();
-	    spans[i] = tokens.get(i).span();
+	    int start = table.start(tokens[i]);
+	    int end = table.end(tokens[i]);
+	    words[i] = doc.text(start, end).trim();
+	    spans[i] = new Span(start, end);
 	}
 	String[] response = new String[nTokens];
 	String priorTag = "^";
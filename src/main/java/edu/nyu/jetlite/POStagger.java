@@ -19,7 +19,7 @@ import opennlp.model.*;
  *  a 'pos' feature to all Token annotations.
  */
 
-public class POStagger extends Annotator {
+public class POStagger extends Annotator implements SentenceAnnotator {
 
     String modelFileName;
     
@@ -129,32 +129,42 @@ public class POStagger extends Annotator {
 
     public void tagDocument (Document doc, Span span) {
 	if (model == null)
-	    model = MaxEnt.loadModel(modelFileName, "POStagger");
-	Vector<Annotation> sentences = doc.annotationsOfType("sentence");
+	    model = MaxEnt.sharedModel(modelFileName, "POStagger");
+	Vector<Annotation> sentences = doc.annotationsOfType("sentence", span);
+	if (sentences == null)
+	    return;
 	for (Annotation sentence : sentences) {
 	    tagSentence (doc, sentence);
 	}
     }
 
+    /**
+     *  Tags the tokens of sentence 'sentence' of Document 'doc'.
+     */
+
+    public void annotateSentence (Document doc, Span sentence) {
+	if (model == null)
+	    model = MaxEnt.sharedModel(modelFileName, "POStagger");
+	tagSentence (doc, sentence);
+    }
+
     public void tagSentence (Document doc, Annotation sentence) {
-	int posn = sentence.start();
+	tagSentence (doc, sentence.span());
+    }
+
+    public void tagSentence (Document doc, Span sentence) {
 	 // collect tokens list
-	List<Token> tokens = new ArrayList<Token>();
-	Token token;
-	while ((token = doc.tokenAt(posn)) != null) {
-	    tokens.add(token);
-	    posn = token.end();
-	    if (posn >= sentence.end()) break;
-	}
-	int nTokens = tokens.size();
+	TokenTable table = doc.tokenTable();
+	int[] tokens = doc.tokenIndexes(sentence);
+	int nTokens = tokens.length;
 	String[] words = new String[nTokens];
 	for (int i=0; i < nTokens; i++)
-	    words[i] = doc.text(tokens.get(i)).trim();
+	    words[i] = doc.text(table.start(tokens[i]), table.end(tokens[i])).trim();
 	String priorTag = "^";
 	for (int i=0; i < nTokens; i++) {
 	    Datum context = POSfeatures(i, words, priorTag);
 	    String prediction = model.getBestOutcome(model.eval(context.toArray()));
-	    tokens.get(i).setPos(prediction);
+	    table.setPos(tokens[i], prediction);
 	    priorTag = prediction;
 	}
     }
@@ -0,0 +1,158 @@
+// -*- tab-width: 4 -*-
+// Title:         JetLite
+// Version:       1.00
+// Copyright (c): 2017
+// Author:        Ralph Grishman
+// Description:   A lightweight Java-based Information Extraction Tool
+
+package edu.nyu.jetlite;
+
+import java.util.*;
+import java.io.*;
+import edu.nyu.jetlite.tipster.*;
+
+/**
+ *  A sequence of annotators, set up once from a Properties table and then
+ *  applied to any number of documents.  The annotators (and any models they
+ *  load) are kept from one document to the next.
+ *  <p>
+ *  The properties are those read by <CODE>Hub.processDocument</CODE>:
+ *  <CODE>annotators</CODE> lists the annotators to run, in order;
+ *  <CODE>tags</CODE> lists further SGML tags to annotate along with TEXT;
+ *  and <CODE>streaming</CODE>, if <CODE>sentence</CODE>, runs the pos, name
+ *  and parse annotators which directly follow the sentence splitter on each
+ *  sentence as soon as it is found.  Each annotator is given the properties
+ *  beginning with its own prefix (such as <CODE>POStagger.</CODE>).
+ *  <p>
+ *  A Pipeline keeps working storage in its annotators, so it should be
+ *  used by only one thread at a time.
+ */
+
+public class Pipeline {
+
+    // one annotator to run over the TEXT span
+    private static class Step {
+	String name;
+	Annotator annotator;
+	// for the splitter, the annotators to run on each sentence, or null
+	SentenceAnnotator next;
+
+	Step (String name, Annotator annotator) {
+	    this.name = name;
+	    this.annotator = annotator;
+	}
+    }
+
+    private List<Step> steps = new ArrayList<Step>();
+
+    // annotates TEXT and any other tags wanted, or null if only TEXT is
+    private TagScanner tagScanner;
+
+    /**
+     *  Creates the annotators listed in property <CODE>annotators</CODE>
+     *  of <I>config</I>.
+     */
+
+    public Pipeline (Properties config) throws IOException {
+	String tagProp = config.getProperty("tags");
+	if (tagProp != null) {
+	    List<String> tags = new ArrayList<String>(Arrays.asList(tagProp.trim().split("\\s+")));
+	    if (!tags.contains("TEXT"))
+		tags.add("TEXT");
+	    tagScanner = new TagScanner(tags.toArray(new String[0]));
+	}
+
+	String annotatorProp = config.getProperty("annotators");
+	if (annotatorProp == null) {
+	    System.out.println("annotators not specified");
+	    return;
+	}
+	boolean streaming = "sentence".equals(config.getProperty("streaming"));
+	// the annotators are shared by any steps which name them twice
+	Map<String, Annotator> annotators = new HashMap<String, Annotator>();
+	Step splitter = null;
+	for (String name : annotatorProp.trim().split("\\s+")) {
+	    Annotator annotator = annotators.get(name);
+	    if (annotator == null) {
+		annotator = makeAnnotator(name, config);
+		if (annotator == null) {
+		    System.out.println("Unknown annotator " + name);
+		    continue;
+		}
+		annotators.put(name, annotator);
+	    }
+	    // when streaming, pos, name and parse directly after the splitter
+	    // join it, rather than being steps of their own
+	    if (splitter != null && annotator instanceof SentenceAnnotator) {
+		addSentenceStage(splitter, (SentenceAnnotator) annotator);
+		continue;
+	    }
+	    Step step = new Step(name, annotator);
+	    steps.add(step);
+	    boolean splits = name.equals("sentence") || name.equals("token+sentence");
+	    splitter = (streaming && splits) ? step : null;
+	}
+    }
+
+    /**
+     *  Returns a new annotator for step <I>name</I>, or null if there is no
+     *  such annotator.
+     */
+
+    private static Annotator makeAnnotator (String name, Properties config) throws IOException {
+	if (name.equals("token") || name.equals("token+sentence"))
+	    return new Tokenizer(Hub.props(config, "Tokenizer"));
+	else if (name.equals("sentence"))
+	    return new SentenceSplitter(Hub.props(config, "Splitter"));
+	else if (name.equals("pos"))
+	    return new POStagger(Hub.props(config, "POStagger"));
+	else if (name.equals("name"))
+	    return new NEtagger(Hub.props(config, "NEtagger"));
+	else if (name.equals("parse"))
+	    return new DepParser(Hub.props(config, "DepParser"));
+	else if (name.equals("coref"))
+	    return new Coref(Hub.props(config, "Coref"));
+	else if (name.equals("entity"))
+	    return new EntityTagger(Hub.props(config, "EntityTagger"));
+	else if (name.equals("relation"))
+	    return new RelationTagger(Hub.props(config, "RelationTagger"));
+	else if (name.equals("event"))
+	    return new EventTagger(Hub.props(config, "EventTagger"));
+	else
+	    return null;
+    }
+
+    private static void addSentenceStage (Step splitter, final SentenceAnnotator stage) {
+	final SentenceAnnotator previous = splitter.next;
+	if (previous == null) {
+	    splitter.next = stage;
+	} else {
+	    splitter.next = new SentenceAnnotator() {
+		    public void annotateSentence (Document doc, Span sentence) {
+			previous.annotateSentence(doc, sentence);
+			stage.annotateSentence(doc, sentence);
+		    }
+		};
+	}
+    }
+
+    /**
+     *  Runs the annotators over the TEXT of <I>doc</I> (or all of
+     *  <I>doc</I>, if it has no TEXT), returning the annotated Document.
+     */
+
+    public Document process (Document doc) {
+	if (tagScanner != null)
+	    tagScanner.annotate(doc);
+	Span span = Hub.getTEXTspan(doc);
+	for (Step step : steps) {
+	    if (step.name.equals("token+sentence"))
+		doc = ((Tokenizer) step.annotator).annotateWithSentences(doc, span, step.next);
+	    else if (step.name.equals("sentence"))
+		doc = ((SentenceSplitter) step.annotator).annotate(doc, span, step.next);
+	    else
+		doc = step.annotator.annotate(doc, span);
+	}
+	return doc;
+    }
+}
@@ -27,6 +27,9 @@ public class RelationTagger extends Annotator {
     // the MaxEnt model
     GISModel model;
 
+    // the pipeline applied to each document before training or evaluation
+    Pipeline preprocessor;
+
     /**
      *  Create a new RelationTagger.
      *
@@ -87,6 +90,20 @@ public class RelationTagger extends Annotator {
 	MaxEnt.buildModel(modelFileName, 3);
     }
 
+    /**
+     *  Returns the pipeline which tokenizes and splits each document,
+     *  creating it when first needed.
+     */
+
+    private Pipeline preprocessor () throws IOException {
+	if (preprocessor == null) {
+	    Properties config = new Properties();
+	    config.setProperty("annotators", "token sentence");
+	    preprocessor = new Pipeline(config);
+	}
+	return preprocessor;
+    }
+
     /**
      *  Acquire training data from one Document in the training corpus.
      *
@@ -98,13 +115,11 @@ public class RelationTagger extends Annotator {
     void learnFromDocument (String docFileName, PrintWriter eventWriter) throws IOException {
 	File docFile = new File(docFileName);
 	Document doc = new Document(docFile);
-	doc.setText(EntityTagger.eraseXML(doc.text()));
+	XMLEraser.erase(doc);
 	String apfFileName = docFileName.replace("sgm" , "apf.xml");
 	AceDocument aceDoc = new AceDocument(docFileName, apfFileName);
 	// --- apply tokenizer and sentence segmenter
-	Properties config = new Properties();
-	config.setProperty("annotators", "token sentence");
-	doc = Hub.processDocument(doc, config);
+	doc = preprocessor().process(doc);
 	// ---	
 	findEntityMentions (aceDoc);
 	findRelationMentions (aceDoc);
@@ -183,15 +198,18 @@ public class RelationTagger extends Annotator {
      */
 
     static boolean inSameSentence (int s1, int s2, Document doc) {
-	Vector<Annotation> sentences = doc.annotationsOfType("sentence");
-	if (sentences == null) {
+	if (doc.sentenceCount() == 0) {
 	    System.out.println("no sentence annotations");
 	    return false;
 	}
-	for (Annotation sentence : sentences) 
-	    if (within(s1,sentence.span()))
-		return within(s2, sentence.span());
-	return false;
+	// as before, a sentence span includes its end point, and s1 belongs
+	// to the first sentence which includes it
+	int k = (s1 > 0) ? doc.sentenceIndexAt(s1 - 1) : -1;
+	if (k < 0)
+	    k = doc.sentenceIndexAt(s1);
+	if (k < 0)
+	    return false;
+	return within(s2, doc.sentence(k).span());
     }
 
     private static boolean within (int i, Span s) {
@@ -243,20 +261,22 @@ loop:
 	d.addFV ("type1", m1.entity.type);
 	d.addFV ("type2", m2.entity.type);
 	d.addFV ("types", m1.entity.type + "-" + m2.entity.type);
+	TokenTable table = doc.tokenTable();
 	int x = m1.jetHead.end();
+	int token = doc.tokenIndexAt(x);
 	int wordsBetween = 0;
 	String phraseBetween = "";
 	while (x < m2.jetHead.start()) {
-	    Token token = doc.tokenAt(x);
-	    if (token == null) break;
-	    String tokenText = doc.normalizedText(token);
+	    if (token < 0) break;
+	    String tokenText = doc.normalizedText(table.start(token), table.end(token));
 	    wordsBetween++;
 	    if (phraseBetween == "")
 		phraseBetween = tokenText;
 	    else
 		phraseBetween += "_" + tokenText;
 	    // d.addF(doc.normalizedText(token));
-	    x = token.end();
+	    x = table.end(token);
+	    token = doc.nextTokenIndex(token);
 	}
 	d.addFV ("WordsBetween", Integer.toString(wordsBetween));
 	// d.addFV ("phraseBetween", phraseBetween);
@@ -277,20 +297,22 @@ loop:
 	d.addFV ("type1", type1);
 	d.addFV ("type2", type2);
 	d.addFV ("types", type1 + "-" + type2);
+	TokenTable table = doc.tokenTable();
 	int x = m1.end();
+	int token = doc.tokenIndexAt(x);
 	int wordsBetween = 0;
 	String phraseBetween = "";
 	while (x < m2.start()) {
-	    Annotation token = doc.tokenAt(x);
-	    if (token == null) break;
-	    String tokenText = doc.normalizedText(token);
+	    if (token < 0) break;
+	    String tokenText = doc.normalizedText(table.start(token), table.end(token));
 	    wordsBetween++;
 	    if (phraseBetween == "")
 		phraseBetween = tokenText;
 	    else
 		phraseBetween += "_" + tokenText;
 	    // d.addF(doc.normalizedText(token));
-	    x = token.end();
+	    x = table.end(token);
+	    token = doc.nextTokenIndex(token);
 	}
 	d.addFV ("WordsBetween", Integer.toString(wordsBetween));
 	// d.addFV ("phraseBetween", phraseBetween);
@@ -335,13 +357,11 @@ loop:
     void evaluateOnDocument (String docFileName) throws IOException {
 	File docFile = new File(docFileName);
 	Document doc = new Document(docFile);
-	doc.setText(EntityTagger.eraseXML(doc.text()));
+	XMLEraser.erase(doc);
 	String apfFileName = docFileName.replace("sgm" , "apf.xml");
 	AceDocument aceDoc = new AceDocument(docFileName, apfFileName);
 	// --- apply tokenizer and sentence segmenter
-	Properties config = new Properties();
-	config.setProperty("annotators", "token sentence");
-	doc = Hub.processDocument(doc, config);
+	doc = preprocessor().process(doc);
 	// ---
 	findEntityMentions (aceDoc);
 	findRelationMentions (aceDoc);
@@ -389,7 +409,7 @@ loop:
     public Document annotate (Document doc, Span span) {
 	// load model if not previously loaded.
 	if (model == null)
-	    model = MaxEnt.loadModel(modelFileName, "RelationTagger");
+	    model = MaxEnt.sharedModel(modelFileName, "RelationTagger");
 	List<Mention> mentionList = Coref.gatherMentions(doc, span);
 	// iterate over all pairs of entity mentions appearing in the same sentence
 	for (int i=0; i<mentionList.size()-1; i++) {
@@ -27,6 +27,15 @@ public class SentenceSplitter extends Annotator {
      */
 
     public Document annotate (Document doc, Span span) {
+        return annotate(doc, span, null);
+    }
+
+    /**
+     *  Add Sentence annotations to Span span of Document doc, passing each
+     *  sentence to 'next' (if not null) as soon as it has been added.
+     */
+
+    public Document annotate (Document doc, Span span, SentenceAnnotator next) {
         int posn = span.start();
         int end = span.end();
         posn = doc.skipWhitespace(posn, span.end());
@@ -38,7 +47,10 @@ public class SentenceSplitter extends Annotator {
             }
             String tokenText = doc.normalizedText(tok);
             if (tokenText.equals(".")) {
-                doc.addAnnotation( new Sentence (new Span(sentenceStart, tok.end())));
+                Span sentence = new Span(sentenceStart, tok.end());
+                doc.addAnnotation( new Sentence (sentence));
+                if (next != null)
+                    next.annotateSentence(doc, sentence);
                 sentenceStart = tok.end();
             }
             posn = tok.end();
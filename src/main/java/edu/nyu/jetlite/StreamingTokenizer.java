@@ -0,0 +1,213 @@
+// -*- tab-width: 4 -*-
+// Title:         JetLite
+// Version:       1.00
+// Copyright (c): 2017
+// Author:        Ralph Grishman
+// Description:   A lightweight Java-based Information Extraction Tool
+
+package edu.nyu.jetlite;
+
+import java.util.*;
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+
+/**
+ *  A tokenizer for input too large to hold in a Document.  It reads the
+ *  input a chunk at a time and passes each token, as a pair of offsets
+ *  from the start of the input, to a TokenHandler;  it finds the same
+ *  tokens as Tokenizer does on the whole text.
+ *
+ *  Only a window of the input is kept in memory:  the current chunk,
+ *  together with the few characters needed to match an abbreviation or
+ *  contraction which runs on into the next chunk.  The text of a token is
+ *  not kept, so memory use does not depend on the size of the input.
+ */
+
+public class StreamingTokenizer {
+
+	/**
+	 *  Receives the tokens found by a StreamingTokenizer, in the order
+	 *  Tokenizer finds them (before they are sorted into a Document).
+	 */
+
+	public interface TokenHandler {
+		void token (long start, long end) throws IOException;
+	}
+
+	/**
+	 *  the number of characters read at a time, unless another is given.
+	 */
+
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+	private AbbreviationMatcher abbreviationMatcher;
+
+	private int chunkSize;
+
+	// the window of the input held in memory:  buf[0] is at offset
+	// bufOffset of the input, and buf[count-1] is the last character read
+	private char[] buf;
+	private long bufOffset;
+	private int count;
+	private boolean eof;
+	private Reader in;
+
+	// the current position;  the window is never moved past posn-1
+	private long posn;
+
+	// as Tokenizer.tokenStart
+	private long tokenStart;
+
+	private TokenHandler handler;
+
+	public StreamingTokenizer (Properties config) throws IOException {
+		this(config, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 *  Creates a tokenizer which reads 'chunkSize' characters at a time,
+	 *  using the abbreviations given by 'config' as for Tokenizer.
+	 */
+
+	public StreamingTokenizer (Properties config, int chunkSize) throws IOException {
+		abbreviationMatcher = Tokenizer.abbreviationMatcher(config);
+		this.chunkSize = Math.max(chunkSize, abbreviationMatcher.maxLength() + 4);
+	}
+
+	/**
+	 *  Tokenizes the bytes read from 'channel', decoded in character set
+	 *  'charset'.  Bytes which are not valid in the character set are
+	 *  replaced, as by a Reader.  Returns the number of characters read.
+	 */
+
+	public long tokenize (ReadableByteChannel channel, Charset charset, TokenHandler handler)
+			throws IOException {
+		CharsetDecoder decoder = charset.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		return tokenize(Channels.newReader(channel, decoder, chunkSize), handler);
+	}
+
+	/**
+	 *  Tokenizes the characters read from 'in', passing each token to
+	 *  'handler'.  Returns the number of characters read.
+	 */
+
+	public long tokenize (Reader in, TokenHandler handler) throws IOException {
+		this.in = in;
+		this.handler = handler;
+		if (buf == null)
+			buf = new char[chunkSize];
+		bufOffset = 0;
+		count = 0;
+		eof = false;
+		posn = 0;
+		tokenStart = 0;
+		try {
+			skipWhitespace();
+			while (available(posn)) {
+				long start = posn;
+				int len = abbreviationCheck();
+				if (len > 0) {
+					posn += len;
+				} else {
+					byte cls = Tokenizer.charClass(charAt(posn));
+					if (cls == Tokenizer.LETTER) {
+						posn++;
+						while (available(posn) && Tokenizer.charClass(charAt(posn)) == Tokenizer.LETTER)
+							posn++;
+						if (available(posn + 2))
+							contractionCheck();
+					} else if (cls == Tokenizer.DIGIT) {
+						posn++;
+						while (available(posn) && Tokenizer.charClass(charAt(posn)) == Tokenizer.DIGIT)
+							posn++;
+					} else {
+						posn++;
+					}
+				}
+				skipWhitespace();
+				handler.token(start, posn);
+			}
+			return posn;
+		} finally {
+			this.in = null;
+			this.handler = null;
+		}
+	}
+
+	/**
+	 *  Returns true if the character at offset 'p' of the input is in the
+	 *  window, reading more of the input if need be;  returns false if the
+	 *  input ends before 'p'.
+	 */
+
+	private boolean available (long p) throws IOException {
+		while (p >= bufOffset + count) {
+			if (eof)
+				return false;
+			fill();
+		}
+		return true;
+	}
+
+	private void fill () throws IOException {
+		// drop the characters before posn-1, which are no longer needed
+		int keep = (int) (Math.max(posn - 1, bufOffset) - bufOffset);
+		if (keep > 0) {
+			System.arraycopy(buf, keep, buf, 0, count - keep);
+			count -= keep;
+			bufOffset += keep;
+		}
+		if (count == buf.length)
+			buf = Arrays.copyOf(buf, 2 * buf.length);
+		int n = in.read(buf, count, buf.length - count);
+		if (n < 0)
+			eof = true;
+		else
+			count += n;
+	}
+
+	private char charAt (long p) {
+		return buf[(int) (p - bufOffset)];
+	}
+
+	private void skipWhitespace () throws IOException {
+		while (available(posn) && Tokenizer.charClass(charAt(posn)) == Tokenizer.SPACE)
+			posn++;
+	}
+
+	/**
+	 *  If the text at 'posn' is an abbreviation, return its length (the
+	 *  length of the longest, if several match), else return -1.
+	 */
+
+	private int abbreviationCheck () throws IOException {
+		// bring the longest possible abbreviation into the window
+		available(posn + abbreviationMatcher.maxLength() - 1);
+		return abbreviationMatcher.match(buf, (int) (posn - bufOffset), count);
+	}
+
+	/**
+	 *  As Tokenizer.contractionCheck;  the three characters from 'posn' on
+	 *  are in the window.
+	 */
+
+	private void contractionCheck () throws IOException {
+		if (charAt(posn) == '\'') {
+			if (charAt(posn + 1) == 's' &&
+					Tokenizer.charClass(charAt(posn + 2)) != Tokenizer.LETTER) {
+				handler.token(tokenStart, posn);
+				tokenStart = posn;
+				posn = posn + 2;
+			}
+			if (charAt(posn - 1) == 'n' && charAt(posn + 1) == 't' &&
+					Tokenizer.charClass(charAt(posn + 2)) == Tokenizer.LETTER) {
+				handler.token(tokenStart, posn - 1);
+				tokenStart = posn - 1;
+				posn = posn + 2;
+			}
+		}
+	}
+}
@@ -3,6 +3,12 @@ package edu.nyu.jetlite;
 import edu.nyu.jetlite.tipster.*;
 import java.util.List;
 
+/**
+ *  A token.  Once added to a Document, a Token is a view of one row of the
+ *  Document's {@link TokenTable}, where its ID and part of speech are
+ *  stored.
+ */
+
 public class Token extends Mention {
 
     public Token (Span s) {
@@ -10,14 +16,99 @@ public class Token extends Mention {
 	type = "token";
     }
 
+    // the table holding this token, or null if it is not on a Document
+    private TokenTable table;
+
+    private int row;
+
+    // part of speech, used only while the token is not in a table
     private String pos;
 
-    public void setPos (String pos) {this.pos = pos;}
+    /**
+     *  Makes this Token a view of row 'row' of 'table';  used by Document.
+     */
+
+    public void attach (TokenTable table, int row) {
+	this.table = table;
+	this.row = row;
+	if (pos != null)
+	    table.setPos(row, pos);
+	pos = null;
+    }
+
+    /**
+     *  Detaches this Token from its table, when it is removed from a Document.
+     */
+
+    public void detach () {
+	if (table != null)
+	    pos = table.pos(row);
+	table = null;
+    }
+
+    /**
+     *  Records that this Token's row has moved;  used by TokenTable.
+     */
+
+    public void setTableRow (int row) {this.row = row;}
+
+    /**
+     *  Returns the table holding this token, or null.
+     */
+
+    public TokenTable getTable () {return table;}
+
+    /**
+     *  Returns the row of this token in its table.
+     */
+
+    public int getTableRow () {return row;}
 
-    public String getPos () {return pos;}
+    /**
+     *  Asks the table to keep this Token, once it has state of its own
+     *  which the table cannot hold (see {@link TokenTable#pinView});
+     *  called before the state is set, so that if the Document is frozen
+     *  the Token is left unchanged.
+     */
+
+    private void pin () {
+	if (table != null)
+	    table.pinView(row, this);
+    }
+
+    public void setHypo (Object s) {
+	pin();
+	super.setHypo(s);
+    }
+
+    public void setMentionOf (Entity mentionOf) {
+	pin();
+	super.setMentionOf(mentionOf);
+    }
+
+    public void setDependents (List<Mention> dependents) {
+	pin();
+	super.setDependents(dependents);
+    }
+
+    public void setDepRelations (List<String> depRelations) {
+	pin();
+	super.setDepRelations(depRelations);
+    }
+
+    public void setPos (String pos) {
+	if (table != null)
+	    table.setPos(row, pos);
+	else
+	    this.pos = pos;
+    }
+
+    public String getPos () {
+	return (table != null) ? table.pos(row) : pos;
+    }
 
     public String toString() {
 	return super.toString()
-	+ Annotation.feat("pos", pos); 
+	+ Annotation.feat("pos", getPos()); 
     }
 }
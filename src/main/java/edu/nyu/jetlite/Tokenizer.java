@@ -9,6 +9,8 @@ package edu.nyu.jetlite;
 
 import edu.nyu.jetlite.tipster.*;
 import java.util.*;
+import java.io.*;
+import java.util.concurrent.*;
 
 /**
  *  A simple tokenizer, adding Token annotations to a document.  Treats as a
@@ -19,6 +21,27 @@ import java.util.*;
  *  the abbreviation token, so the sentence splitter does not treat the period as
  *  ending a sentence.  In addition, contractions are split following
  *  Penn Tree Bank conventions.
+ *
+ *  Further abbreviations may be read from a file, one per line, named by
+ *  property Tokenizer.abbreviations.fileName;  they are added to the
+ *  built-in list.
+ *
+ *  By default the tokenizer copies the text into an array once and
+ *  classifies each character with a table (for ASCII characters;  others
+ *  use the Character methods), with no allocation per token.  Setting
+ *  property Tokenizer.mode to "simple" selects the original loop over
+ *  Document.charAt, which gives the same tokens.
+ *
+ *  If property Tokenizer.parallelism is set to a number of threads greater
+ *  than 1, a large span is cut into chunks at whitespace (where a token
+ *  must begin), and the chunks are tokenized together on a ForkJoinPool
+ *  shared by all Tokenizers (with as many threads as the first Tokenizer to
+ *  use it asks for);  the tokens are the same as when the span is tokenized
+ *  in one piece.
+ *
+ *  annotateWithSentences adds Sentence annotations in the same pass as the
+ *  tokens, ending a sentence after each '.', '?' or '!' token (and after
+ *  the last token, if the text does not end with one).
  */
 
 public class  Tokenizer extends Annotator {
@@ -71,21 +94,123 @@ public class  Tokenizer extends Annotator {
 		abbreviations.add("D.C.");
 	}
 
+	// the built-in abbreviations, compiled when first needed
+	private static AbbreviationMatcher standardAbbreviations;
+
+	private AbbreviationMatcher abbreviationMatcher;
+
+	// character classes, as given by the Character methods
+	static final byte OTHER = 0;
+	static final byte LETTER = 1;
+	static final byte DIGIT = 2;
+	static final byte SPACE = 3;
+
+	private static final byte[] asciiClass = new byte[128];
+
+	static {
+		for (char c = 0; c < 128; c++)
+			asciiClass[c] = classify(c);
+	}
+
+	private boolean simpleMode;
+
+	// the number of chunks to tokenize at once, or 1 to tokenize a span in
+	// one piece
+	private int parallelism;
+
+	// the pool for tokenizing chunks of a span in parallel, created when
+	// first needed and shared by all Tokenizers
+	private static ForkJoinPool pool;
+
+	// the least number of characters tokenized by one task
+	private static final int MIN_CHUNK = 1 << 18;
+
+	// a copy of the span being tokenized, with the few characters after
+	// it which an abbreviation or contraction may look at;  kept for the
+	// next span if it is no longer than MAX_KEPT
+	private char[] chars = new char[0];
+
+	// the longest copy kept from one span to the next
+	private static final int MAX_KEPT = 1 << 16;
+
+	// the position of the first character of the span which is not
+	// whitespace
+	private int textStart;
+
+	// where contractionCheck last split a token;  each document starts
+	// from 0, as if tokenized by a new Tokenizer
 	int tokenStart;
 
-	public Tokenizer (Properties config) {
+	// the tokens found so far, added to the document together when
+	// annotate finishes
+	private int[] tokenStarts = new int[0];
+	private int[] tokenEnds = new int[0];
+	private int tokenCount;
+
+	// true if scan is to record where sentences end
+	private boolean splitSentences;
+
+	// the ends of the sentences found so far
+	private int[] sentenceEnds = new int[0];
+	private int sentenceCount;
+
+	public Tokenizer (Properties config) throws IOException {
+		simpleMode = "simple".equals(config.getProperty("Tokenizer.mode"));
+		abbreviationMatcher = abbreviationMatcher(config);
+		parallelism = Integer.parseInt(config.getProperty("Tokenizer.parallelism", "1"));
+		if (parallelism > 1)
+			sharedPool(parallelism);
+	}
+
+	private static synchronized ForkJoinPool sharedPool (int parallelism) {
+		if (pool == null)
+			pool = new ForkJoinPool(parallelism);
+		return pool;
+	}
+
+	/**
+	 *  Creates a tokenizer for one chunk of a span, sharing the abbreviations
+	 *  of 'parent'.
+	 */
+
+	private Tokenizer (Tokenizer parent) {
+		abbreviationMatcher = parent.abbreviationMatcher;
+		splitSentences = parent.splitSentences;
+	}
+
+	/**
+	 *  Returns a matcher for the built-in abbreviations, together with any
+	 *  listed in the file named by property Tokenizer.abbreviations.fileName.
+	 */
+
+	static AbbreviationMatcher abbreviationMatcher (Properties config) throws IOException {
+		String fileName = config.getProperty("Tokenizer.abbreviations.fileName");
+		if (fileName == null)
+			return standardAbbreviations();
+		List<String> abbrevs = new ArrayList<String>(abbreviations);
+		abbrevs.addAll(AbbreviationMatcher.readAbbreviations(fileName));
+		return new AbbreviationMatcher(abbrevs);
+	}
+
+	private static synchronized AbbreviationMatcher standardAbbreviations () {
+		if (standardAbbreviations == null)
+			standardAbbreviations = new AbbreviationMatcher(abbreviations);
+		return standardAbbreviations;
 	}
 
 	public Document annotate (Document doc, Span span) {
+		if (!simpleMode)
+			return annotateFromTable(doc, span);
 
-		String text = doc.text();
+		tokenCount = 0;
+		tokenStart = 0;
 		int posn = span.start();
 		posn = doc.skipWhitespace(posn, span.end());
 
 		while (posn < span.end()) {
 			int tokenStart = posn;
 			char c = doc.charAt(posn);
-			int len = abbreviationCheck(text, posn);
+			int len = abbreviationCheck(doc, posn);
 			if (len > 0) {
 				posn += len;
 			} else if (!Character.isLetterOrDigit(c)) {
@@ -102,21 +227,217 @@ public class  Tokenizer extends Annotator {
 					posn++;
 			}
 			posn = doc.skipWhitespace(posn, span.end());
-			doc.addAnnotation (new Token (new Span(tokenStart, posn)));
+			addToken(tokenStart, posn);
+		}
+		doc.addTokens(tokenStarts, tokenEnds, tokenCount);
+		return doc;
+	}
+
+	/**
+	 *  Adds Token annotations, as annotate does, and Sentence annotations to
+	 *  Span span of Document doc, in a single pass over the text.  This
+	 *  takes the place of running SentenceSplitter after the Tokenizer.
+	 */
+
+	public Document annotateWithSentences (Document doc, Span span) {
+		return annotateWithSentences(doc, span, null);
+	}
+
+	/**
+	 *  Adds Token and Sentence annotations as annotateWithSentences does,
+	 *  passing each sentence to 'next' (if not null) as soon as it has been
+	 *  added.
+	 */
+
+	public Document annotateWithSentences (Document doc, Span span, SentenceAnnotator next) {
+		sentenceCount = 0;
+		splitSentences = true;
+		try {
+			annotateFromTable(doc, span);
+		} finally {
+			splitSentences = false;
+		}
+		if (tokenCount == 0)
+			return doc;
+		int start = textStart;
+		for (int i = 0; i < sentenceCount; i++) {
+			addSentence(doc, new Span(start, sentenceEnds[i]), next);
+			start = sentenceEnds[i];
+		}
+		// the last token is never one split off a contraction, which are
+		// added before the token they come from
+		int end = tokenEnds[tokenCount - 1];
+		if (start < end)
+			addSentence(doc, new Span(start, end), next);
+		return doc;
+	}
+
+	private static void addSentence (Document doc, Span sentence, SentenceAnnotator next) {
+		doc.addAnnotation(new Sentence(sentence));
+		if (next != null)
+			next.annotateSentence(doc, sentence);
+	}
+
+	/**
+	 *  Tokenizes as annotate does, but over a copy of the text in an array,
+	 *  looking up each character's class in a table.  Only the span is
+	 *  copied, together with as many characters after it as the longest
+	 *  abbreviation (or a contraction) may need.
+	 */
+
+	private Document annotateFromTable (Document doc, Span span) {
+		tokenCount = 0;
+		tokenStart = 0;
+		// offsets within 'chars' are relative to 'base'
+		int base = span.start();
+		int lookahead = Math.max(abbreviationMatcher.maxLength(), 4);
+		int length = (int) Math.min(doc.length(), (long) span.end() + lookahead) - base;
+		char[] chars = this.chars;
+		if (chars.length < length) {
+			chars = new char[length];
+			if (length <= MAX_KEPT)
+				this.chars = chars;
 		}
+		doc.getChars(base, base + length, chars, 0);
+		int end = span.end() - base;
+		textStart = base + skipWhitespace(chars, 0, end);
+		if (parallelism > 1 && end >= 2 * MIN_CHUNK && !abbreviationMatcher.spansWhitespace())
+			scanInParallel(chars, base, end, length);
+		else
+			scan(chars, base, 0, end, length);
+		doc.addTokens(tokenStarts, tokenEnds, tokenCount);
 		return doc;
 	}
 
 	/**
-	 *  If the text at offset 'posn' is an abbreviation, return its length,
-	 *  else return -1.
+	 *  Adds the tokens of chars[posn] to chars[end], where chars[0] is at
+	 *  offset 'base' of the document, and the text ends at chars[length].
 	 */
 
-	private int abbreviationCheck (String text, int posn) {
-		for (String abbrev : abbreviations)
-			if (text.startsWith(abbrev, posn))
-				return abbrev.length();
-		return -1;
+	private void scan (char[] chars, int base, int posn, int end, int length) {
+		posn = skipWhitespace(chars, posn, end);
+		while (posn < end) {
+			int start = posn;
+			boolean endsSentence = false;
+			byte cls = charClass(chars[posn]);
+			int len = abbreviationMatcher.match(chars, posn, length);
+			if (len > 0) {
+				posn += len;
+			} else if (cls == LETTER) {
+				posn++;
+				while (posn < end && charClass(chars[posn]) == LETTER)
+					posn++;
+				if (posn + 2 < end)
+					posn = contractionCheck(chars, base, posn);
+			} else if (cls == DIGIT) {
+				posn++;
+				while (posn < end && charClass(chars[posn]) == DIGIT)
+					posn++;
+			} else {
+				char c = chars[posn];
+				endsSentence = splitSentences && (c == '.' || c == '?' || c == '!');
+				posn++;
+			}
+			posn = skipWhitespace(chars, posn, end);
+			addToken(base + start, base + posn);
+			if (endsSentence)
+				addSentenceEnd(base + posn);
+		}
+	}
+
+	/**
+	 *  Adds the tokens of chars[0] to chars[end] as scan does, cutting the
+	 *  text into chunks which are tokenized in parallel.  A chunk begins
+	 *  with a character which is not whitespace and follows whitespace, so
+	 *  a token begins there:  no token (not even an abbreviation, unless it
+	 *  contains whitespace) runs on from one chunk to the next.
+	 */
+
+	private void scanInParallel (final char[] chars, final int base, int end, final int length) {
+		int chunkSize = Math.max(MIN_CHUNK, end / (4 * parallelism));
+		List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+		final List<Tokenizer> workers = new ArrayList<Tokenizer>();
+		int from = 0;
+		while (from < end) {
+			int to = Math.min(from + chunkSize, end);
+			while (to < end && !(charClass(chars[to - 1]) == SPACE && charClass(chars[to]) != SPACE))
+				to++;
+			final int chunkStart = from;
+			final int chunkEnd = to;
+			final Tokenizer worker = new Tokenizer(this);
+			// marks a token which begins where the previous chunk left
+			// tokenStart (see contractionCheck)
+			worker.tokenStart = Integer.MIN_VALUE;
+			workers.add(worker);
+			tasks.add(new RecursiveAction() {
+				protected void compute () {
+					worker.scan(chars, base, chunkStart, chunkEnd, length);
+				}
+			});
+			from = to;
+		}
+		ForkJoinPool pool = sharedPool(parallelism);
+		for (RecursiveAction task : tasks)
+			pool.execute(task);
+		// merge the chunks in order, carrying tokenStart from one to the next
+		for (int i = 0; i < tasks.size(); i++) {
+			tasks.get(i).join();
+			Tokenizer worker = workers.get(i);
+			for (int t = 0; t < worker.tokenCount; t++) {
+				int start = worker.tokenStarts[t];
+				addToken(start == Integer.MIN_VALUE ? tokenStart : start, worker.tokenEnds[t]);
+			}
+			if (worker.tokenStart != Integer.MIN_VALUE)
+				tokenStart = worker.tokenStart;
+			for (int t = 0; t < worker.sentenceCount; t++)
+				addSentenceEnd(worker.sentenceEnds[t]);
+		}
+	}
+
+	private static byte classify (char c) {
+		if (Character.isLetter(c))
+			return LETTER;
+		if (Character.isDigit(c))
+			return DIGIT;
+		if (Character.isWhitespace(c))
+			return SPACE;
+		return OTHER;
+	}
+
+	static byte charClass (char c) {
+		return (c < 128) ? asciiClass[c] : classify(c);
+	}
+
+	private static int skipWhitespace (char[] chars, int posn, int end) {
+		while (posn < end && charClass(chars[posn]) == SPACE)
+			posn++;
+		return posn;
+	}
+
+	private void addToken (int start, int end) {
+		if (tokenCount == tokenStarts.length) {
+			int n = Math.max(256, 2 * tokenCount);
+			tokenStarts = Arrays.copyOf(tokenStarts, n);
+			tokenEnds = Arrays.copyOf(tokenEnds, n);
+		}
+		tokenStarts[tokenCount] = start;
+		tokenEnds[tokenCount] = end;
+		tokenCount++;
+	}
+
+	private void addSentenceEnd (int end) {
+		if (sentenceCount == sentenceEnds.length)
+			sentenceEnds = Arrays.copyOf(sentenceEnds, Math.max(64, 2 * sentenceCount));
+		sentenceEnds[sentenceCount++] = end;
+	}
+
+	/**
+	 *  If the text at offset 'posn' is an abbreviation, return its length
+	 *  (the length of the longest, if several match), else return -1.
+	 */
+
+	private int abbreviationCheck (Document doc, int posn) {
+		return abbreviationMatcher.match(doc, posn);
 	}
 
 	/**
@@ -127,13 +448,13 @@ public class  Tokenizer extends Annotator {
 	private int contractionCheck (Document doc, int posn) {
 		if (doc.charAt(posn) == '\'') {
 			if (doc.charAt(posn + 1) == 's' && !Character.isLetter(doc.charAt(posn + 2))) {
-				doc.addAnnotation(new Token (new Span (tokenStart, posn)));
+				addToken(tokenStart, posn);
 				tokenStart = posn;
 				posn = posn + 2;
 			}
 			if (doc.charAt(posn - 1) == 'n' && doc.charAt(posn + 1) == 't' &&
 					Character.isLetter(doc.charAt(posn + 2))) {
-				doc.addAnnotation(new Token (new Span (tokenStart, posn - 1)));
+				addToken(tokenStart, posn - 1);
 				tokenStart = posn - 1;
 				posn = posn + 2;
 			}
@@ -141,4 +462,26 @@ public class  Tokenizer extends Annotator {
 		return posn;
 	}
 
+	/**
+	 *  contractionCheck over 'chars', whose first character is at offset
+	 *  'base' of the document.
+	 */
+
+	private int contractionCheck (char[] chars, int base, int posn) {
+		if (chars[posn] == '\'') {
+			if (chars[posn + 1] == 's' && charClass(chars[posn + 2]) != LETTER) {
+				addToken(tokenStart, base + posn);
+				tokenStart = base + posn;
+				posn = posn + 2;
+			}
+			if (chars[posn - 1] == 'n' && chars[posn + 1] == 't' &&
+					charClass(chars[posn + 2]) == LETTER) {
+				addToken(tokenStart, base + posn - 1);
+				tokenStart = base + posn - 1;
+				posn = posn + 2;
+			}
+		}
+		return posn;
+	}
+
 }
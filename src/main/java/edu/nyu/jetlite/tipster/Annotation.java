@@ -37,6 +37,24 @@ public class Annotation {
 		return type;
 	}
 
+	// the code of the type, and the type String it was computed for
+	private transient int typeCode;
+
+	private transient String typeCodeOf;
+
+	/**
+	 * returns the code assigned to the type of this annotation by
+	 * {@link AnnotationTypes}.
+	 */
+
+	public int typeCode() {
+		if (typeCodeOf != type) {
+			typeCode = AnnotationTypes.code(type);
+			typeCodeOf = type;
+		}
+		return typeCode;
+	}
+
 	/**
 	 * returns the span (of text) associated with the annotation.
 	 */
@@ -133,7 +151,22 @@ public class Annotation {
 	    return("*error*");
     }
 
-    private String ID;
-    public void setID (String id) {ID = id;}
-    public String getID () {return ID;}
+    // assigned by the Document when the annotation is added;  0 if none
+    private int id;
+
+    /**
+     * returns the ID assigned to this annotation by its Document, or 0 if it
+     * has none.
+     */
+
+    public int id () {return id;}
+
+    public void setID (int id) {this.id = id;}
+
+    /**
+     * returns the printed form of the ID ("#" followed by the number), or
+     * <B>null</B> if the annotation has no ID.
+     */
+
+    public String getID () {return (id == 0) ? null : "#" + id;}
 }
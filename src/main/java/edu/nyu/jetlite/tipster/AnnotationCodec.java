@@ -0,0 +1,56 @@
+// -*- tab-width: 4 -*-
+//Title:        JET
+//Version:      1.00
+//Copyright:    Copyright (c) 2000
+//Author:       Ralph Grishman
+//Description:  A Java-based Information Extraction Tool
+
+package edu.nyu.jetlite.tipster;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes and reads the features of one class of annotations in the binary
+ * document format of {@link DocumentWriter} and {@link DocumentReader}.
+ * The type and span of each annotation are written by the DocumentWriter
+ * itself;  the codec creates the annotation objects when reading, and
+ * writes and reads any additional fields, one column at a time for all
+ * the annotations of the class and type.
+ */
+
+public interface AnnotationCodec {
+
+	/**
+	 * Returns the name by which the codec is identified in the file.
+	 */
+
+	String name();
+
+	/**
+	 * Returns the class of annotation handled by this codec.
+	 */
+
+	Class<? extends Annotation> annotationClass();
+
+	/**
+	 * Creates an annotation of type <I>type</I> over <I>span</I>, without
+	 * any features.
+	 */
+
+	Annotation create(String type, Span span);
+
+	/**
+	 * Writes the features of <I>anns</I>.
+	 */
+
+	void writeFeatures(List<Annotation> anns, DocumentWriter out);
+
+	/**
+	 * Reads the features written by writeFeatures and sets them on
+	 * <I>anns</I>, which have been created by <CODE>create</CODE> and
+	 * added to the document.
+	 */
+
+	void readFeatures(List<Annotation> anns, DocumentReader in) throws IOException;
+}
@@ -0,0 +1,171 @@
+// -*- tab-width: 4 -*-
+//Title:        JET
+//Version:      1.00
+//Copyright:    Copyright (c) 2000
+//Author:       Ralph Grishman
+//Description:  A Java-based Information Extraction Tool
+
+package edu.nyu.jetlite.tipster;
+
+import edu.nyu.jetlite.*;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The registry of {@link AnnotationCodec}s, by annotation class and by
+ * name.  Codecs are provided for Annotation and for the annotation classes
+ * of the standard annotators;  others may be added with
+ * {@link #register(AnnotationCodec) register}.
+ */
+
+public class AnnotationCodecs {
+
+	private static Map<Class<? extends Annotation>, AnnotationCodec> byClass =
+		new HashMap<Class<? extends Annotation>, AnnotationCodec>();
+
+	private static Map<String, AnnotationCodec> byName =
+		new HashMap<String, AnnotationCodec>();
+
+	static {
+		register(new AnnotationCodec() {
+			public String name() {return "annotation";}
+			public Class<? extends Annotation> annotationClass() {return Annotation.class;}
+			public Annotation create(String type, Span span) {return new Annotation(type, span);}
+			public void writeFeatures(List<Annotation> anns, DocumentWriter out) {}
+			public void readFeatures(List<Annotation> anns, DocumentReader in) {}
+		});
+		register(new AnnotationCodec() {
+			public String name() {return "sentence";}
+			public Class<? extends Annotation> annotationClass() {return Sentence.class;}
+			public Annotation create(String type, Span span) {return new Sentence(span);}
+			public void writeFeatures(List<Annotation> anns, DocumentWriter out) {}
+			public void readFeatures(List<Annotation> anns, DocumentReader in) {}
+		});
+		register(new MentionCodec());
+		register(new MentionCodec() {
+			public String name() {return "enamex";}
+			public Class<? extends Annotation> annotationClass() {return Enamex.class;}
+			public Annotation create(String type, Span span) {return new Enamex(span);}
+			public void writeFeatures(List<Annotation> anns, DocumentWriter out) {
+				super.writeFeatures(anns, out);
+				for (Annotation a : anns)
+					out.writeString(((Enamex) a).getNameType());
+				for (Annotation a : anns)
+					out.writeStrings(((Enamex) a).getTokens());
+			}
+			public void readFeatures(List<Annotation> anns, DocumentReader in) throws IOException {
+				super.readFeatures(anns, in);
+				for (Annotation a : anns)
+					((Enamex) a).setNameType(in.readString());
+				for (Annotation a : anns)
+					((Enamex) a).setTokens(in.readStrings());
+			}
+		});
+		register(new AnnotationCodec() {
+			public String name() {return "entity";}
+			public Class<? extends Annotation> annotationClass() {return Entity.class;}
+			public Annotation create(String type, Span span) {return new Entity(span);}
+			public void writeFeatures(List<Annotation> anns, DocumentWriter out) {
+				for (Annotation a : anns)
+					out.writeAnnotations(((Entity) a).getMentions());
+				for (Annotation a : anns)
+					out.writeString(((Entity) a).getSemType());
+			}
+			public void readFeatures(List<Annotation> anns, DocumentReader in) throws IOException {
+				for (Annotation a : anns)
+					((Entity) a).setMentions(in.readAnnotations(Mention.class));
+				for (Annotation a : anns)
+					((Entity) a).setSemType(in.readString());
+			}
+		});
+		register(new AnnotationCodec() {
+			public String name() {return "relationMention";}
+			public Class<? extends Annotation> annotationClass() {return RelationMention.class;}
+			public Annotation create(String type, Span span) {return new RelationMention(span);}
+			public void writeFeatures(List<Annotation> anns, DocumentWriter out) {
+				for (Annotation a : anns)
+					out.writeString(((RelationMention) a).getSemType());
+			}
+			public void readFeatures(List<Annotation> anns, DocumentReader in) throws IOException {
+				for (Annotation a : anns)
+					((RelationMention) a).setSemType(in.readString());
+			}
+		});
+		register(new AnnotationCodec() {
+			public String name() {return "eventMention";}
+			public Class<? extends Annotation> annotationClass() {return EventMention.class;}
+			public Annotation create(String type, Span span) {return new EventMention(span);}
+			public void writeFeatures(List<Annotation> anns, DocumentWriter out) {
+				for (Annotation a : anns)
+					out.writeString(((EventMention) a).getSemType());
+			}
+			public void readFeatures(List<Annotation> anns, DocumentReader in) throws IOException {
+				for (Annotation a : anns)
+					((EventMention) a).setSemType(in.readString());
+			}
+		});
+	}
+
+	private AnnotationCodecs() {
+	}
+
+	/**
+	 * Adds <I>codec</I> to the registry, replacing any codec for the same
+	 * class or with the same name.
+	 */
+
+	public static synchronized void register(AnnotationCodec codec) {
+		byClass.put(codec.annotationClass(), codec);
+		byName.put(codec.name(), codec);
+	}
+
+	/**
+	 * Returns the codec for annotations of class <I>c</I>, or <B>null</B>
+	 * if there is none.
+	 */
+
+	public static synchronized AnnotationCodec forClass(Class<? extends Annotation> c) {
+		return byClass.get(c);
+	}
+
+	/**
+	 * Returns the codec with name <I>name</I>, or <B>null</B> if there is
+	 * none.
+	 */
+
+	public static synchronized AnnotationCodec forName(String name) {
+		return byName.get(name);
+	}
+
+	/**
+	 * The codec for Mentions, which also writes the mention features of
+	 * Enamexes and Tokens.
+	 */
+
+	static class MentionCodec implements AnnotationCodec {
+
+		public String name() {return "mention";}
+
+		public Class<? extends Annotation> annotationClass() {return Mention.class;}
+
+		public Annotation create(String type, Span span) {return new Mention(span);}
+
+		public void writeFeatures(List<Annotation> anns, DocumentWriter out) {
+			for (Annotation a : anns)
+				out.writeAnnotation(((Mention) a).getMentionOf());
+			for (Annotation a : anns)
+				out.writeAnnotations(((Mention) a).getDependents());
+			for (Annotation a : anns)
+				out.writeStrings(((Mention) a).getDepRelations());
+		}
+
+		public void readFeatures(List<Annotation> anns, DocumentReader in) throws IOException {
+			for (Annotation a : anns)
+				((Mention) a).setMentionOf((Entity) in.readAnnotation());
+			for (Annotation a : anns)
+				((Mention) a).setDependents(in.readAnnotations(Mention.class));
+			for (Annotation a : anns)
+				((Mention) a).setDepRelations(in.readStrings());
+		}
+	}
+}
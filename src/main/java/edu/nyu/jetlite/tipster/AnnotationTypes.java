@@ -0,0 +1,126 @@
+// -*- tab-width: 4 -*-
+//Title:        JET
+//Version:      1.00
+//Copyright:    Copyright (c) 2000
+//Author:       Ralph Grishman
+//Description:  A Java-based Information Extraction Tool
+
+package edu.nyu.jetlite.tipster;
+
+import java.util.*;
+
+/**
+ * A registry assigning a small integer code to each annotation type, so that
+ * annotation types can be compared as ints and sets of types represented as
+ * bit masks.  Codes are assigned in order of first use, starting from 0, and
+ * are shared by all Documents;  the types used by the standard annotators are
+ * registered first.
+ * <p>
+ * A mask has one bit for each of the first 63 codes;  all later codes share
+ * the top bit, so a mask test for such a type must be confirmed by comparing
+ * the type names (see {@link #matches(int, long, String[]) matches}).
+ */
+
+public class AnnotationTypes {
+
+	private static final int MASK_BITS = 63;
+
+	// both are replaced, never modified, when a type is added, so that they
+	// can be read without locking
+	private static volatile Map<String, Integer> codes = new HashMap<String, Integer>();
+
+	private static volatile String[] names = new String[0];
+
+	static {
+		for (String type : new String[] {"token", "sentence", "enamex", "numex",
+				"timex", "timex2", "term", "mention", "entity", "relationMention",
+				"eventMention", "TEXT"})
+			code(type);
+	}
+
+	private AnnotationTypes() {
+	}
+
+	/**
+	 * Returns the code for annotation type <I>type</I>, assigning a new one
+	 * if necessary.
+	 */
+
+	public static int code(String type) {
+		Integer code = codes.get(type);
+		return (code != null) ? code : register(type);
+	}
+
+	private static synchronized int register(String type) {
+		Integer code = codes.get(type);
+		if (code != null)
+			return code;
+		code = names.length;
+		String[] n = Arrays.copyOf(names, code + 1);
+		n[code] = type;
+		names = n;
+		Map<String, Integer> c = new HashMap<String, Integer>(codes);
+		c.put(type, code);
+		codes = c;
+		return code;
+	}
+
+	/**
+	 * Returns the code for annotation type <I>type</I>, or -1 if no code has
+	 * been assigned to it (in which case there are no annotations of that
+	 * type).
+	 */
+
+	public static int lookup(String type) {
+		Integer code = codes.get(type);
+		return (code == null) ? -1 : code;
+	}
+
+	/**
+	 * Returns the annotation type with code <I>code</I>.
+	 */
+
+	public static String name(int code) {
+		return names[code];
+	}
+
+	/**
+	 * Returns the bit representing code <I>code</I> in a type mask.
+	 */
+
+	public static long bit(int code) {
+		return 1L << Math.min(code, MASK_BITS);
+	}
+
+	/**
+	 * Returns a mask with the bits for each of <I>types</I>.  Types which
+	 * have no code yet are skipped.
+	 */
+
+	public static long mask(String... types) {
+		long mask = 0;
+		for (String type : types) {
+			int code = lookup(type);
+			if (code >= 0)
+				mask |= bit(code);
+		}
+		return mask;
+	}
+
+	/**
+	 * Returns true if type code <I>code</I> is one of <I>types</I>, whose
+	 * mask is <I>mask</I>.
+	 */
+
+	public static boolean matches(int code, long mask, String[] types) {
+		if ((mask & bit(code)) == 0)
+			return false;
+		if (code < MASK_BITS)
+			return true;
+		String type = name(code);
+		for (String t : types)
+			if (t.equals(type))
+				return true;
+		return false;
+	}
+}
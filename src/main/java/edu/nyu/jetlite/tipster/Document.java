@@ -8,8 +8,12 @@
 package edu.nyu.jetlite.tipster;
 
 import edu.nyu.jetlite.Token;
+import gnu.trove.TIntObjectHashMap;
+import gnu.trove.TObjectFunction;
 import java.io.*;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * Document provides a container for the text of a document and the annotations
@@ -17,24 +21,50 @@ import java.util.*;
  */
 
 public class Document implements Serializable {
-	StringBuffer text;
+	// the text, read and written without locking
+	TextBuffer text;
 
-	// annotationsByStart is a mapping from starting positions to vectors of
-	// annotations
-	private Hashtable annotationsByStart;
+	// annotationsByStart is a mapping from starting positions to lists of
+	// annotations;  keyed by primitive int, with unsynchronized ArrayLists
+	// as values, since these are the most frequently consulted indexes
+	private TIntObjectHashMap annotationsByStart;
 
-	// annotationsByEnd is a mapping from starting positions to vectors of
+	// annotationsByEnd is a mapping from ending positions to lists of
 	// annotations
-	private Hashtable annotationsByEnd;
+	private TIntObjectHashMap annotationsByEnd;
+
+	// annotationsByType is a mapping from types to lists of annotations
+	private Map<String, List<Annotation>> annotationsByType;
+
+	// annotationsByID[i] is the annotation with ID i (or null if it has been
+	// removed, or is a token:  the IDs of tokens are kept in the token
+	// table);  IDs are assigned consecutively starting from 1
+	private Annotation[] annotationsByID;
+
+	// intervalIndexByType is a mapping from types to IntervalIndexes over
+	// the annotations of that type;  an entry is discarded whenever an
+	// annotation of that type is added or removed, and rebuilt when next needed
+	private transient Map<String, IntervalIndex> intervalIndexByType;
 
-	// annotationsByType is a mapping from types to vectors of annotations
-	private Hashtable annotationsByType;
+	// the Token annotations, which are not entered in the indexes above
+	private TokenTable tokens;
 
-	// annotationsByID is a mapping from IDs to annnotations
-        private Hashtable annotationsByID; 	
+	// set by freeze();  once true, no further changes are permitted
+	private volatile boolean frozen = false;
 
 	private int nextAnnotationID;
 
+	// for a Document read lazily from a DocumentArchive, the sections of its
+	// record not yet read
+	private transient LazyRecord lazyRecord;
+
+	// the types whose annotations have been read from the record, but not
+	// yet entered in annotationsByStart and annotationsByEnd;  null if none
+	private transient Set<String> unindexedTypes;
+
+	// the tags for which a TagScanner has scanned the text
+	private transient Set<String> scannedTags;
+
 	private Object currentHypothesis = null;
 
 	private Set activeHypotheses = null;
@@ -44,11 +74,13 @@ public class Document implements Serializable {
 	 */
 
 	public Document() {
-		text = new StringBuffer();
-		annotationsByStart = new Hashtable();
-		annotationsByEnd = new Hashtable();
-		annotationsByType = new Hashtable();
-		annotationsByID = new Hashtable();
+		text = new TextBuffer();
+		annotationsByStart = new TIntObjectHashMap();
+		annotationsByEnd = new TIntObjectHashMap();
+		annotationsByType = new Hashtable<String, List<Annotation>>();
+		annotationsByID = new Annotation[64];
+		intervalIndexByType = new Hashtable<String, IntervalIndex>();
+		tokens = new TokenTable(this);
 		nextAnnotationID = 0;
 	}
 
@@ -57,11 +89,13 @@ public class Document implements Serializable {
 	 */
 
 	public Document(String stg) {
-		text = new StringBuffer(stg);
-		annotationsByStart = new Hashtable();
-		annotationsByEnd = new Hashtable();
-		annotationsByType = new Hashtable();
-		annotationsByID = new Hashtable();
+		text = new TextBuffer(stg);
+		annotationsByStart = new TIntObjectHashMap();
+		annotationsByEnd = new TIntObjectHashMap();
+		annotationsByType = new Hashtable<String, List<Annotation>>();
+		annotationsByID = new Annotation[64];
+		intervalIndexByType = new Hashtable<String, IntervalIndex>();
+		tokens = new TokenTable(this);
 		nextAnnotationID = 0;
 	}
 
@@ -70,19 +104,91 @@ public class Document implements Serializable {
 	 */
 
 	public Document (File file) throws IOException {
+	    this();
+	    appendFile(file);
+	}
+
+	private void appendFile (File file) throws IOException {
 	    BufferedReader reader = new BufferedReader (new FileReader (file));
-	    text = new StringBuffer();
 	    String line;
 	    while ((line = reader.readLine()) != null) {
 		text.append(line);
 		text.append("\n");
 	    }
 	    reader.close();
-	    annotationsByStart = new Hashtable();
-	    annotationsByEnd = new Hashtable();
-	    annotationsByType = new Hashtable();
-	    annotationsByID = new Hashtable();
-	    nextAnnotationID = 0;
+	}
+
+	private void readObject(ObjectInputStream in)
+			throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		intervalIndexByType = new Hashtable<String, IntervalIndex>();
+		if (frozen)
+			intervalIndexByType = buildAllIntervalIndexes();
+	}
+
+	/**
+	 * Freezes the document:  compacts the text and all the annotation
+	 * indexes into read-only arrays, builds the interval index for every
+	 * type, and replaces the synchronized tables by unsynchronized copies.
+	 * After this, queries take no locks and the document may be shared by
+	 * any number of reader threads.  Any attempt to change the
+	 * text or the set of annotations of a frozen document throws
+	 * IllegalStateException.  (The Annotation objects themselves are not
+	 * protected;  readers should treat them as read-only.)
+	 */
+
+	public synchronized void freeze() {
+		if (frozen)
+			return;
+		loadAll();
+		text.trimToSize();
+		compactPositionIndex(annotationsByStart);
+		compactPositionIndex(annotationsByEnd);
+		Map<String, List<Annotation>> types = new LinkedHashMap<String, List<Annotation>>();
+		for (String type : annotationsByType.keySet())
+			types.put(type, readOnlyCopy(annotationsByType.get(type)));
+		annotationsByType = Collections.unmodifiableMap(types);
+		annotationsByID = Arrays.copyOf(annotationsByID,
+				Math.min(annotationsByID.length, nextAnnotationID + 1));
+		intervalIndexByType = buildAllIntervalIndexes();
+		tokens.freeze();
+		frozen = true;
+	}
+
+	/**
+	 * Returns true if {@link #freeze() freeze} has been called on this
+	 * document.
+	 */
+
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void checkNotFrozen() {
+		if (frozen)
+			throw new IllegalStateException("Document is frozen");
+	}
+
+	private static void compactPositionIndex(TIntObjectHashMap index) {
+		index.transformValues(new TObjectFunction() {
+			public Object execute(Object v) {
+				return readOnlyCopy((List<?>) v);
+			}
+		});
+	}
+
+	private static List<Annotation> readOnlyCopy(List<?> v) {
+		return Collections.unmodifiableList(Arrays.asList(v.toArray(new Annotation[v.size()])));
+	}
+
+	private Map<String, IntervalIndex> buildAllIntervalIndexes() {
+		Map<String, IntervalIndex> indexes = new HashMap<String, IntervalIndex>();
+		for (String type : annotationsByType.keySet()) {
+			List<Annotation> v = annotationsByType.get(type);
+			if (!v.isEmpty())
+				indexes.put(type, new IntervalIndex(v));
+		}
+		return Collections.unmodifiableMap(indexes);
 	}
 
 	/**
@@ -91,12 +197,49 @@ public class Document implements Serializable {
 	 */
 
 	public void clear() {
-		text.setLength(0);
+		checkNotFrozen();
+		dropLazyRecord();
+		text.clear();
 		annotationsByStart.clear();
 		annotationsByEnd.clear();
 		annotationsByType.clear();
-		annotationsByID.clear();
+		clearIDs();
+		intervalIndexByType.clear();
+		tokens.clear();
 		nextAnnotationID = 0;
+		scannedTags = null;
+	}
+
+	/**
+	 * Prepares the document for reuse with text <I>stg</I>:  removes all
+	 * annotations, hypotheses and text, and then sets the text, keeping the
+	 * space already allocated for the text, the token table and the
+	 * indexes.  Annotations from before the reset must no longer be used.
+	 * (See {@link DocumentPool}.)
+	 */
+
+	public void reset(CharSequence stg) {
+		clear();
+		currentHypothesis = null;
+		activeHypotheses = null;
+		text.append(stg);
+	}
+
+	/**
+	 * Prepares the document for reuse, as {@link #reset(CharSequence)
+	 * reset(CharSequence)}, with the contents of file <I>file</I> as its
+	 * text.
+	 */
+
+	public void reset(File file) throws IOException {
+		reset("");
+		appendFile(file);
+	}
+
+	// clears the IDs assigned so far, rather than the whole table
+	private void clearIDs() {
+		Arrays.fill(annotationsByID, 0,
+				Math.min(annotationsByID.length, nextAnnotationID + 1), null);
 	}
 
 	/**
@@ -105,7 +248,20 @@ public class Document implements Serializable {
 	 */
 
 	public void setText(String stg) {
-		text = new StringBuffer(stg);
+		checkNotFrozen();
+		text = new TextBuffer(stg);
+		scannedTags = null;
+	}
+
+	/**
+	 * Returns the buffer holding the text, which the caller will change in
+	 * place;  used by {@link XMLEraser}.
+	 */
+
+	TextBuffer textForUpdate() {
+		checkNotFrozen();
+		scannedTags = null;
+		return text;
 	}
 
 	/**
@@ -142,6 +298,42 @@ public class Document implements Serializable {
 		return text.substring(s.start(), s.end());
 	}
 
+	/**
+	 * Returns the text from position <I>start</I> up to position <I>end</I>.
+	 */
+
+	public String text(int start, int end) {
+		return text.substring(start, end);
+	}
+
+	/**
+	 * Returns a view of the text subsumed by span <I>s</I>.  Unlike
+	 * {@link #text(Span) text}, this does not copy the characters;  the
+	 * view should not be kept across later changes to the document's text.
+	 */
+
+	public CharSequence textView(Span s) {
+		return text.subSequence(s.start(), s.end());
+	}
+
+	/**
+	 * Returns a view of the text from position <I>start</I> up to position
+	 * <I>end</I>, without copying it.
+	 */
+
+	public CharSequence textView(int start, int end) {
+		return text.subSequence(start, end);
+	}
+
+	/**
+	 * Returns true if the text at position <I>posn</I> begins with
+	 * <I>s</I>.
+	 */
+
+	public boolean textStartsWith(String s, int posn) {
+		return text.startsWith(s, posn);
+	}
+
 	/**
 	 * Returns the text subsumed by annotation <I>ann</I>.
 	 */
@@ -157,7 +349,31 @@ public class Document implements Serializable {
 	 */
 
 	public String normalizedText(Span s) {
-		return normalizeName(text.substring(s.start(), s.end()));
+		return normalizedText(s.start(), s.end());
+	}
+
+	/**
+	 * Returns the text from position <I>start</I> up to position <I>end</I>,
+	 * normalized as by {@link #normalizeName(String) normalizeName}, but
+	 * without first copying it.
+	 */
+
+	public String normalizedText(int start, int end) {
+		StringBuilder result = new StringBuilder(end - start);
+		boolean space = false;
+		for (int i = start; i < end; i++) {
+			char c = text.charAt(i);
+			// the same whitespace as for a StringTokenizer
+			if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f') {
+				space = result.length() > 0;
+			} else {
+				if (space)
+					result.append(' ');
+				space = false;
+				result.append(c);
+			}
+		}
+		return result.toString();
 	}
 
 	/**
@@ -183,20 +399,75 @@ public class Document implements Serializable {
 		return normalizedText(ann.span());
 	}
 
+	/**
+	 * Copies the text from position <I>start</I> up to position <I>end</I>
+	 * into <I>dst</I>, beginning at <I>dstBegin</I>.
+	 */
+
+	public void getChars(int start, int end, char[] dst, int dstBegin) {
+		text.getChars(start, end, dst, dstBegin);
+	}
+
+	/**
+	 * Returns true if the text from <I>start</I> up to <I>end</I> is equal
+	 * to <I>s</I>, ignoring case.
+	 */
+
+	boolean textEqualsIgnoreCase(int start, int end, String s) {
+		return text.regionEqualsIgnoreCase(start, end, s);
+	}
+
+	/**
+	 * Returns true if a {@link TagScanner} has annotated the text with the
+	 * spans enclosed by tag <I>tag</I>.
+	 */
+
+	boolean tagScanned(String tag) {
+		return scannedTags != null && scannedTags.contains(tag);
+	}
+
+	/**
+	 * Records that the text has been annotated with the spans enclosed by
+	 * tag <I>tag</I>.  (Not recorded for a frozen document, which may be
+	 * shared among threads.)
+	 */
+
+	void setTagScanned(String tag) {
+		if (frozen)
+			return;
+		if (scannedTags == null)
+			scannedTags = new HashSet<String>();
+		scannedTags.add(tag);
+	}
+
+	/**
+	 * Records that the spans enclosed by tag <I>tag</I> are no longer all
+	 * annotated, after an annotation of that type has been removed.
+	 */
+
+	private void forgetTagScanned(String tag) {
+		if (scannedTags != null)
+			scannedTags.remove(tag);
+	}
+
 	/**
 	 * Adds the text <I>stg</I> to the end of the document.
 	 */
 
-	public StringBuffer append(String stg) {
-		return text.append(stg);
+	public void append(String stg) {
+		checkNotFrozen();
+		text.append(stg);
+		scannedTags = null;
 	}
 
 	/**
 	 * Adds the char <I>c</I> to the end of the document.
 	 */
 
-	public StringBuffer append(char c) {
-		return text.append(c);
+	public void append(char c) {
+		checkNotFrozen();
+		text.append(c);
+		scannedTags = null;
 	}
 
 	/**
@@ -212,7 +483,7 @@ public class Document implements Serializable {
 	 */
 
 	public Span fullSpan() {
-		return new Span(0, text.length());
+		return new Span(0, length());
 	}
 
 	/**
@@ -228,7 +499,9 @@ public class Document implements Serializable {
 	 */
 
 	public void setCharAt(int posn, char c) {
+		checkNotFrozen();
 		text.setCharAt(posn, c);
+		scannedTags = null;
 	}
 
 	/**
@@ -236,39 +509,50 @@ public class Document implements Serializable {
 	 */
 
 	public void clearAnnotations() {
+		checkNotFrozen();
+		dropLazyRecord();
 		annotationsByStart.clear();
 		annotationsByEnd.clear();
 		annotationsByType.clear();
-		annotationsByID.clear();
+		clearIDs();
+		intervalIndexByType.clear();
+		tokens.clear();
+		scannedTags = null;
 	}
 
 	/**
-	 * Adds an annotation to the document.
+	 * Adds an annotation to the document.  A Token becomes a view of a new
+	 * row of the document's {@link TokenTable}.
 	 */
 
 	public Annotation addAnnotation(Annotation ann) {
-		// index by starting and ending position
-		Integer start = new Integer(ann.span.start);
-		if (!annotationsByStart.containsKey(start))
-			annotationsByStart.put(start, new Vector());
-		Vector vs = (Vector) annotationsByStart.get(start);
-		vs.add(ann);
-		Integer end = new Integer(ann.span.end);
-		if (!annotationsByEnd.containsKey(end))
-			annotationsByEnd.put(end, new Vector());
-		Vector ve = (Vector) annotationsByEnd.get(end);
-		ve.add(ann);
-		// index by type
-		String type = ann.type;
-		if (!annotationsByType.containsKey(type))
-			annotationsByType.put(type, new Vector());
-		Vector vt = (Vector) annotationsByType.get(type);
-		vt.add(ann);
-		// index by ID
-		nextAnnotationID++;
-		String id = "#" + nextAnnotationID;
-		ann.setID(id);
-		annotationsByID.put(id, ann);
+		checkNotFrozen();
+		if (ann instanceof Token) {
+			loadTokenViews();
+			Token t = (Token) ann;
+			t.setID(reserveIDs(1));
+			int row = tokens.add(ann.span.start, ann.span.end, t.id());
+			t.attach(tokens, row);
+			tokens.pinView(row, t);
+		} else {
+			// register the type, so that queries can compare type codes
+			ann.typeCode();
+			// index by starting and ending position (unless annotations of
+			// this type are yet to be entered there)
+			if (!isUnindexed(ann.type)) {
+				addToPositionIndex(annotationsByStart, ann.span.start, ann);
+				addToPositionIndex(annotationsByEnd, ann.span.end, ann);
+			}
+			// index by type
+			String type = ann.type;
+			if (!annotationsByType.containsKey(type))
+				annotationsByType.put(type, new ArrayList<Annotation>());
+			List<Annotation> vt = annotationsByType.get(type);
+			vt.add(ann);
+			typeChanged(type);
+			// index by ID
+			assignID(ann);
+		}
 		// if there is an activeHypothesis, add it to annotation
 		if (currentHypothesis != null)
 			ann.setHypo(currentHypothesis);
@@ -280,29 +564,628 @@ public class Document implements Serializable {
 		return ann;
 	}
 
+	/**
+	 * Adds all the annotations in <I>anns</I> to the document.  The result is
+	 * the same as adding them in turn with {@link #addAnnotation(Annotation)
+	 * addAnnotation}, but the indexes are built in bulk:  the new annotations
+	 * are sorted by start (and by end), and each run of annotations with the
+	 * same position is appended to its index entry in one step;  tokens are
+	 * merged into the TokenTable in a single pass.
+	 */
+
+	public void addAnnotations(Collection<? extends Annotation> anns) {
+		checkNotFrozen();
+		int n = anns.size();
+		Annotation[] others = new Annotation[n];
+		Token[] newTokens = new Token[n];
+		int nOthers = 0, nTokens = 0;
+		for (Annotation ann : anns) {
+			if (ann instanceof Token) {
+				ann.setID(reserveIDs(1));
+				newTokens[nTokens++] = (Token) ann;
+			} else {
+				ann.typeCode();
+				others[nOthers++] = ann;
+				assignID(ann);
+			}
+			if (currentHypothesis != null)
+				ann.setHypo(currentHypothesis);
+			ann.span().setDocument(this);
+		}
+		if (nTokens > 0) {
+			loadTokenViews();
+			int[] starts = new int[nTokens];
+			int[] ends = new int[nTokens];
+			int[] ids = new int[nTokens];
+			for (int i = 0; i < nTokens; i++) {
+				starts[i] = newTokens[i].span.start;
+				ends[i] = newTokens[i].span.end;
+				ids[i] = newTokens[i].id();
+			}
+			int[] rows = tokens.addAll(starts, ends, ids, nTokens);
+			for (int i = 0; i < nTokens; i++) {
+				newTokens[i].attach(tokens, rows[i]);
+				tokens.pinView(rows[i], newTokens[i]);
+			}
+		}
+		if (nOthers == 0)
+			return;
+		// index by type, keeping the order given
+		String lastType = null;
+		List<Annotation> vt = null;
+		for (int i = 0; i < nOthers; i++) {
+			String type = others[i].type;
+			if (!type.equals(lastType)) {
+				vt = annotationsByType.get(type);
+				if (vt == null) {
+					vt = new ArrayList<Annotation>();
+					annotationsByType.put(type, vt);
+				}
+				typeChanged(type);
+				lastType = type;
+			}
+			vt.add(others[i]);
+		}
+		if (unindexedTypes != null) {
+			int n2 = 0;
+			for (int i = 0; i < nOthers; i++)
+				if (!isUnindexed(others[i].type))
+					others[n2++] = others[i];
+			nOthers = n2;
+		}
+		addToPositionIndexes(others, nOthers);
+	}
+
+	/**
+	 * Enters the first <I>n</I> annotations of <I>anns</I> in the indexes by
+	 * starting and ending position.  The sorts are stable, so annotations at
+	 * the same position stay in the order given.
+	 */
+
+	private void addToPositionIndexes(Annotation[] anns, int n) {
+		Annotation[] sorted = Arrays.copyOf(anns, n);
+		Arrays.sort(sorted, new Comparator<Annotation>() {
+			public int compare(Annotation a, Annotation b) {
+				return Integer.compare(a.span.start, b.span.start);
+			}
+		});
+		addRunsToPositionIndex(annotationsByStart, sorted, true);
+		sorted = Arrays.copyOf(anns, n);
+		Arrays.sort(sorted, new Comparator<Annotation>() {
+			public int compare(Annotation a, Annotation b) {
+				return Integer.compare(a.span.end, b.span.end);
+			}
+		});
+		addRunsToPositionIndex(annotationsByEnd, sorted, false);
+	}
+
+	/**
+	 * Adds annotations <I>anns</I>, all of one type and in order of ID, as
+	 * they are read from a Document record by {@link DocumentReader}.  They
+	 * keep their IDs.  If there are no other annotations of their type, they
+	 * are entered in the indexes by position only when a query by position
+	 * next needs them.
+	 */
+
+	void addLoaded(List<Annotation> anns) {
+		if (anns.isEmpty())
+			return;
+		String type = anns.get(0).type;
+		List<Annotation> vt = annotationsByType.get(type);
+		if (vt == null) {
+			vt = new ArrayList<Annotation>(anns.size());
+			annotationsByType.put(type, vt);
+		}
+		// the annotations of this type already in the indexes by position
+		// are joined by these now;  otherwise all are entered later
+		boolean indexNow = !vt.isEmpty() && !isUnindexed(type);
+		boolean inOrder = vt.isEmpty()
+			|| vt.get(vt.size() - 1).id() < anns.get(0).id();
+		for (Annotation ann : anns) {
+			ann.typeCode();
+			registerID(ann);
+			ann.span().setDocument(this);
+			vt.add(ann);
+		}
+		if (!inOrder)
+			Collections.sort(vt, BY_ID);
+		typeChanged(type);
+		if (indexNow) {
+			addToPositionIndexes(anns.toArray(new Annotation[anns.size()]), anns.size());
+		} else {
+			if (unindexedTypes == null)
+				unindexedTypes = new HashSet<String>();
+			unindexedTypes.add(type);
+		}
+	}
+
+	private boolean isUnindexed(String type) {
+		return unindexedTypes != null && unindexedTypes.contains(type);
+	}
+
+	/**
+	 * Makes an entry for annotations of type <I>type</I> in the index by
+	 * type, if there is none.
+	 */
+
+	void addType(String type) {
+		if (!annotationsByType.containsKey(type))
+			annotationsByType.put(type, new ArrayList<Annotation>());
+	}
+
+	private static final Comparator<Annotation> BY_ID = new Comparator<Annotation>() {
+		public int compare(Annotation a, Annotation b) {
+			return Integer.compare(a.id(), b.id());
+		}
+	};
+
+	/**
+	 * Makes this document read the sections of <I>record</I> as they are
+	 * needed;  used by {@link DocumentReader}.
+	 */
+
+	void setLazyRecord(LazyRecord record) {
+		lazyRecord = record;
+	}
+
+	/**
+	 * Reads any sections of the document's record not yet read, and brings
+	 * the indexes by position up to date.
+	 */
+
+	void loadAll() {
+		if (lazyRecord != null) {
+			lazyRecord.loadAll();
+			lazyRecord = null;
+		}
+		if (unindexedTypes != null) {
+			// entered together in order of ID, the order in which the
+			// annotations were originally added
+			List<Annotation> all = new ArrayList<Annotation>();
+			for (String type : unindexedTypes)
+				all.addAll(annotationsByType.get(type));
+			unindexedTypes = null;
+			Annotation[] anns = all.toArray(new Annotation[all.size()]);
+			Arrays.sort(anns, BY_ID);
+			addToPositionIndexes(anns, anns.length);
+		}
+	}
+
+	/**
+	 * Reads the annotations of type <I>type</I> from the document's record,
+	 * if not already read.
+	 */
+
+	private void load(String type) {
+		if (lazyRecord != null)
+			lazyRecord.loadType(type);
+	}
+
+	/**
+	 * Reads the annotations of type <I>type</I>, as {@link #load(String)
+	 * load} does, and enters them in the indexes by position if they are
+	 * not there yet;  the annotations of other types are left as they are.
+	 */
+
+	private void loadPositions(String type) {
+		load(type);
+		if (isUnindexed(type)) {
+			unindexedTypes.remove(type);
+			if (unindexedTypes.isEmpty())
+				unindexedTypes = null;
+			List<Annotation> v = annotationsByType.get(type);
+			addToPositionIndexes(v.toArray(new Annotation[v.size()]), v.size());
+		}
+	}
+
+	/**
+	 * Reads the Token objects of the token table from the document's
+	 * record, if not already read;  this must be done before any row is
+	 * added to the table.
+	 */
+
+	private void loadTokenViews() {
+		if (lazyRecord != null)
+			lazyRecord.loadTokenViews();
+	}
+
+	private void dropLazyRecord() {
+		lazyRecord = null;
+		unindexedTypes = null;
+	}
+
+	/**
+	 * Adds <I>n</I> tokens to the document, the <I>i</I>-th spanning
+	 * [<I>starts[i]</I>, <I>ends[i]</I>).  This is equivalent to calling
+	 * {@link #addToken(int, int) addToken} for each, but the tokens are
+	 * merged into the TokenTable in one pass.
+	 */
+
+	public void addTokens(int[] starts, int[] ends, int n) {
+		int[] ids = new int[n];
+		int first = reserveIDs(n);
+		for (int i = 0; i < n; i++)
+			ids[i] = first + i;
+		addTokens(starts, ends, ids, n);
+	}
+
+	/**
+	 * Adds <I>n</I> tokens as {@link #addTokens(int[], int[], int)
+	 * addTokens} does, the <I>i</I>-th with the ID <I>ids[i]</I> already
+	 * reserved for it;  used by {@link DocumentReader}.
+	 */
+
+	void addTokens(int[] starts, int[] ends, int[] ids, int n) {
+		checkNotFrozen();
+		loadTokenViews();
+		int[] rows = tokens.addAll(starts, ends, ids, n);
+		if (currentHypothesis != null)
+			for (int row : rows)
+				tokenView(row).setHypo(currentHypothesis);
+	}
+
+	/**
+	 * Adds a token spanning [<I>start</I>, <I>end</I>) to the document,
+	 * returning its row in the {@link TokenTable}.  Unlike adding a Token
+	 * with {@link #addAnnotation(Annotation) addAnnotation}, this does not
+	 * create a Token object;  one is created if and when it is requested.
+	 * The token's ID is assigned now, all the same.
+	 */
+
+	public int addToken(int start, int end) {
+		checkNotFrozen();
+		loadTokenViews();
+		int row = tokens.add(start, end, reserveIDs(1));
+		if (currentHypothesis != null)
+			tokenView(row).setHypo(currentHypothesis);
+		return row;
+	}
+
+	/**
+	 * Returns the table of tokens on this document.
+	 */
+
+	public TokenTable tokenTable() {
+		return tokens;
+	}
+
+	/**
+	 * Returns the number of tokens on the document.
+	 */
+
+	public int tokenCount() {
+		return tokens.size();
+	}
+
+	/**
+	 * Returns the <I>i</I>-th token of the document (counting from 0 in
+	 * order of starting position).
+	 */
+
+	public Token token(int i) {
+		if (i < 0 || i >= tokens.size())
+			throw new IndexOutOfBoundsException("token " + i + ", count " + tokens.size());
+		return tokenView(i);
+	}
+
+	/**
+	 * Returns the index of the token starting at position <I>start</I>, or
+	 * -1 if no token starts there.  This is a binary search over the token
+	 * starts, and does not create a Token object.
+	 */
+
+	public int tokenIndexAt(int start) {
+		int row = tokens.rowStartingAt(start);
+		if (row < 0)
+			return -1;
+		for (int i = row; i < tokens.size() && tokens.start(i) == start; i++)
+			if (isActiveToken(i))
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Returns the index of the token beginning where token <I>i</I> ends,
+	 * or -1 if there is none.  This is the token which would be reached by
+	 * <CODE>tokenAt(token(i).end())</CODE>, and is normally token i+1.
+	 */
+
+	public int nextTokenIndex(int i) {
+		int end = tokens.end(i);
+		if (i + 1 < tokens.size() && tokens.start(i + 1) == end
+				&& tokens.start(i) < end && isActiveToken(i + 1))
+			return i + 1;
+		return tokenIndexAt(end);
+	}
+
+	/**
+	 * Returns the index of the token ending where token <I>i</I> begins, or
+	 * -1 if there is none.  This is normally token i-1.
+	 */
+
+	public int previousTokenIndex(int i) {
+		int start = tokens.start(i);
+		if (i > 0 && tokens.endsInOrder() && tokens.end(i - 1) == start
+				&& (i == 1 || tokens.end(i - 2) < start) && isActiveToken(i - 1))
+			return i - 1;
+		return tokenIndexEndingAt(start);
+	}
+
+	/**
+	 * Returns the index of the token ending at position <I>end</I>, or -1 if
+	 * no token ends there.
+	 */
+
+	public int tokenIndexEndingAt(int end) {
+		int k = firstTokenEndingAt(end);
+		if (k < 0)
+			return -1;
+		for (int j = k; j < tokens.size(); j++) {
+			int row = tokens.endRow(j);
+			if (tokens.end(row) != end)
+				break;
+			if (isActiveToken(row))
+				return row;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the indexes of the tokens of <I>span</I>:  the token starting
+	 * at the start of the span, the token starting where that one ends, and
+	 * so on, stopping after the first token which reaches the end of the span
+	 * or when there is no next token.  Normally these are consecutive.
+	 */
+
+	public int[] tokenIndexes(Span span) {
+		int first = tokenIndexAt(span.start);
+		if (first < 0)
+			return new int[0];
+		int[] result = new int[8];
+		int n = 0;
+		for (int i = first; i >= 0; i = nextTokenIndex(i)) {
+			if (n == result.length)
+				result = Arrays.copyOf(result, 2 * n);
+			result[n++] = i;
+			// (an empty token would lead back to itself)
+			if (tokens.end(i) >= span.end || tokens.end(i) == tokens.start(i))
+				break;
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * Returns the number of sentence annotations on the document.
+	 */
+
+	public int sentenceCount() {
+		IntervalIndex index = intervalIndex("sentence");
+		return (index == null) ? 0 : index.size();
+	}
+
+	/**
+	 * Returns the <I>k</I>-th sentence of the document (counting from 0 in
+	 * order of starting position).  Throws an IndexOutOfBoundsException if
+	 * there is no such sentence.
+	 */
+
+	public Annotation sentence(int k) {
+		IntervalIndex index = intervalIndex("sentence");
+		if (index == null || k < 0 || k >= index.size())
+			throw new IndexOutOfBoundsException("sentence " + k + ", count "
+					+ ((index == null) ? 0 : index.size()));
+		return index.annotation(k);
+	}
+
+	/**
+	 * Returns the index of the sentence containing character position
+	 * <I>posn</I>, or -1 if <I>posn</I> is not within any sentence.  The
+	 * sentence is found by a search of the sentence IntervalIndex, taking
+	 * O(log n) time;  if sentences overlap, the first one is returned.
+	 */
+
+	public int sentenceIndexAt(int posn) {
+		IntervalIndex index = intervalIndex("sentence");
+		return (index == null) ? -1 : index.firstCovering(posn);
+	}
+
+	/**
+	 * Returns true if character positions <I>posn1</I> and <I>posn2</I> are
+	 * both within the same sentence.
+	 */
+
+	public boolean sameSentence(int posn1, int posn2) {
+		int k = sentenceIndexAt(posn1);
+		return k >= 0 && k == sentenceIndexAt(posn2);
+	}
+
+	/**
+	 * Returns the index of the first token of the <I>k</I>-th sentence
+	 * (counting sentences from 0 in order of starting position).  The tokens
+	 * of the sentence are those from sentenceFirstToken(k) up to, but not
+	 * including, sentenceEndToken(k).
+	 */
+
+	public int sentenceFirstToken(int k) {
+		return tokens.sentenceFirstToken(k);
+	}
+
+	/**
+	 * Returns one more than the index of the last token of the <I>k</I>-th
+	 * sentence.
+	 */
+
+	public int sentenceEndToken(int k) {
+		return tokens.sentenceEndToken(k);
+	}
+
+	/**
+	 * Returns the Token for row <I>i</I> of the token table, creating it if
+	 * there is none in use.  (On a frozen document, which may be shared
+	 * among threads, the new Token is not recorded in the table.)
+	 */
+
+	private Token tokenView(int i) {
+		loadTokenViews();
+		Token t = tokens.view(i);
+		if (t == null) {
+			Span s = new Span(tokens.start(i), tokens.end(i));
+			s.setDocument(this);
+			t = new Token(s);
+			t.setID(tokens.id(i));
+			t.attach(tokens, i);
+			if (!frozen)
+				tokens.cacheView(i, t);
+		}
+		return t;
+	}
+
+	/**
+	 * returns true if the token in row <I>i</I> should be visible given the
+	 * current <code>activeHypotheses</code>.
+	 */
+
+	private boolean isActiveToken(int i) {
+		if (activeHypotheses == null)
+			return true;
+		loadTokenViews();
+		Token t = tokens.view(i);
+		return t == null || isActive(t);
+	}
+
+	private void assignID(Annotation ann) {
+		ann.setID(nextAnnotationID + 1);
+		registerID(ann);
+	}
+
+	/**
+	 * Reserves <I>n</I> consecutive annotation IDs, returning the first;
+	 * used for tokens, whose IDs are kept in the token table.
+	 */
+
+	private int reserveIDs(int n) {
+		int first = nextAnnotationID + 1;
+		nextAnnotationID += n;
+		return first;
+	}
+
+	/**
+	 * Records <I>ann</I> under the ID it already has.
+	 */
+
+	private void registerID(Annotation ann) {
+		int id = ann.id();
+		if (id >= annotationsByID.length)
+			annotationsByID = Arrays.copyOf(annotationsByID,
+					Math.max(id + 1, 2 * annotationsByID.length));
+		annotationsByID[id] = ann;
+		if (id > nextAnnotationID)
+			nextAnnotationID = id;
+	}
+
+	/**
+	 * Creates the Token for row <I>row</I> of the token table, held by the
+	 * table for good;  used by {@link DocumentReader} for the Tokens which
+	 * were written with state of their own.
+	 */
+
+	Token restoreTokenView(int row) {
+		Span s = new Span(tokens.start(row), tokens.end(row));
+		s.setDocument(this);
+		Token t = new Token(s);
+		t.setID(tokens.id(row));
+		t.attach(tokens, row);
+		tokens.pinView(row, t);
+		return t;
+	}
+
+	/**
+	 * Returns the largest annotation ID assigned so far.
+	 */
+
+	int lastAnnotationID() {
+		return nextAnnotationID;
+	}
+
+	/**
+	 * Sets the largest annotation ID assigned so far;  used by
+	 * {@link DocumentReader}.
+	 */
+
+	void setLastAnnotationID(int id) {
+		nextAnnotationID = id;
+	}
+
+	/**
+	 * Returns the lists of (non-token) annotations, indexed by type.
+	 */
+
+	Map<String, List<Annotation>> annotationLists() {
+		return annotationsByType;
+	}
+
+	private void releaseID(Annotation ann) {
+		int id = ann.id();
+		if (id > 0 && id < annotationsByID.length && annotationsByID[id] == ann)
+			annotationsByID[id] = null;
+	}
+
+	/**
+	 * Discards the information derived from the annotations of type
+	 * <I>type</I>, after one has been added or removed.
+	 */
+
+	private void typeChanged(String type) {
+		intervalIndexByType.remove(type);
+		if (type.equals("sentence"))
+			tokens.sentencesStale = true;
+	}
+
+	/**
+	 * Sets the sentence number of each token from the current sentence
+	 * annotations;  called by the TokenTable when needed.
+	 */
+
+	void assignTokenSentences() {
+		List<Annotation> sentences = new ArrayList<Annotation>();
+		IntervalIndex index = intervalIndex("sentence");
+		if (index != null)
+			for (int k = 0; k < index.size(); k++)
+				sentences.add(index.annotation(k));
+		tokens.assignSentences(sentences);
+	}
+
 	/**
 	 * Removes annotation <I>ann</I> from the document. Does nothing if ann is
 	 * not an annotation on the document.
 	 */
 
 	public void removeAnnotation(Annotation ann) {
-		Integer start = new Integer(ann.span.start);
-		Vector vs = (Vector) annotationsByStart.get(start);
+		checkNotFrozen();
+		loadAll();
+		if (ann instanceof Token) {
+			Token t = (Token) ann;
+			if (t.getTable() != tokens)
+				return;
+			tokens.remove(t.getTableRow());
+			t.detach();
+			return;
+		}
+		List<Annotation> vs = positionList(annotationsByStart, ann.span.start);
 		if (vs != null)
 			vs.remove(ann);
 
-		Integer end = new Integer(ann.span.end);
-		Vector ve = (Vector) annotationsByEnd.get(end);
+		List<Annotation> ve = positionList(annotationsByEnd, ann.span.end);
 		if (ve != null)
 			ve.remove(ann);
 
 		String type = ann.type;
-		Vector vt = (Vector) annotationsByType.get(type);
+		List<Annotation> vt = annotationsByType.get(type);
 		if (vt != null)
 			vt.remove(ann);
-		
-		if (ann.getID() != null)
-		    annotationsByID.remove(ann.getID());
+		typeChanged(type);
+		forgetTagScanned(type);
+		releaseID(ann);
 	}
 
 	/**
@@ -310,11 +1193,15 @@ public class Document implements Serializable {
 	 */
 
 	public void removeAnnotationsOfType(String type) {
-		Vector v = annotationsOfType(type);
+		checkNotFrozen();
+		loadAll();
+		if (type.equals("token"))
+			tokens.clear();
+		Vector<Annotation> v = annotationsOfType(type);
 		if (v == null)
 			return;
 		for (int i = 0; i < v.size(); i++) {
-			Annotation a = (Annotation) v.get(i);
+			Annotation a = v.get(i);
 			removeAnnotation(a);
 		}
 	}
@@ -326,11 +1213,16 @@ public class Document implements Serializable {
 	 */
 
 	public Vector<Annotation> annotationsAt(int start) {
-		Integer s = new Integer(start);
-		Vector v = (Vector) annotationsByStart.get(s);
-		if (v == null)
-			return null;
-		return activeAnnotations(v);
+		loadAll();
+		List<Annotation> v = positionList(annotationsByStart, start);
+		int row = tokens.rowStartingAt(start);
+		if (row < 0)
+			return (v == null) ? null : activeAnnotations(v);
+		Vector<Annotation> result = new Vector<Annotation>();
+		addTokensStartingAt(row, result);
+		if (v != null)
+			addActive(v, result);
+		return result;
 	}
 
 	/**
@@ -340,19 +1232,28 @@ public class Document implements Serializable {
 	 */
 
 	public Vector<Annotation> annotationsAt(int start, String type) {
-		Vector annAt = this.annotationsAt(start);
-		if (annAt == null)
-			return null;
-		Vector result = null;
+		loadPositions(type);
+		Vector<Annotation> result = null;
+		if (type.equals("token")) {
+			int row = tokens.rowStartingAt(start);
+			if (row >= 0) {
+				result = new Vector<Annotation>();
+				addTokensStartingAt(row, result);
+			}
+		}
+		int code = AnnotationTypes.lookup(type);
+		List<Annotation> annAt = positionList(annotationsByStart, start);
+		if (annAt == null || code < 0)
+			return nonEmpty(result);
 		for (int i = 0; i < annAt.size(); i++) {
-			Annotation ann = (Annotation) annAt.get(i);
-			if (ann.type().equals(type)) {
+			Annotation ann = annAt.get(i);
+			if (ann.typeCode() == code && isActive(ann)) {
 				if (result == null)
-					result = new Vector();
+					result = new Vector<Annotation>();
 				result.addElement(ann);
 			}
 		}
-		return result;
+		return nonEmpty(result);
 	}
 
 	/**
@@ -362,20 +1263,28 @@ public class Document implements Serializable {
 	 */
 
 	public Vector<Annotation> annotationsAt(int start, String[] types) {
-		Vector<Annotation> annAt = this.annotationsAt(start);
+		for (String type : types)
+			loadPositions(type);
+		Vector<Annotation> result = null;
+		if (Arrays.asList(types).contains("token")) {
+			int row = tokens.rowStartingAt(start);
+			if (row >= 0) {
+				result = new Vector<Annotation>();
+				addTokensStartingAt(row, result);
+			}
+		}
+		List<Annotation> annAt = positionList(annotationsByStart, start);
 		if (annAt == null)
-			return null;
-		Vector result = null;
+			return nonEmpty(result);
+		long mask = AnnotationTypes.mask(types);
 		for (Annotation ann : annAt) {
-			for (String type : types) {
-				if (ann.type().equals(type)) {
-					if (result == null)
-						result = new Vector();
-					result.addElement(ann);
-				}
+			if (AnnotationTypes.matches(ann.typeCode(), mask, types) && isActive(ann)) {
+				if (result == null)
+					result = new Vector<Annotation>();
+				result.addElement(ann);
 			}
 		}
-		return result;
+		return nonEmpty(result);
 	}
 
 	/**
@@ -384,11 +1293,16 @@ public class Document implements Serializable {
 	 */
 
 	public Vector<Annotation> annotationsEndingAt(int end) {
-		Integer e = new Integer(end);
-		Vector v = (Vector) annotationsByEnd.get(e);
-		if (v == null)
-			return null;
-		return activeAnnotations(v);
+		loadAll();
+		List<Annotation> v = positionList(annotationsByEnd, end);
+		int k = firstTokenEndingAt(end);
+		if (k < 0)
+			return (v == null) ? null : activeAnnotations(v);
+		Vector<Annotation> result = new Vector<Annotation>();
+		addTokensEndingAt(k, result);
+		if (v != null)
+			addActive(v, result);
+		return result;
 	}
 
 	/**
@@ -397,19 +1311,28 @@ public class Document implements Serializable {
 	 */
 
 	public Vector<Annotation> annotationsEndingAt(int end, String type) {
-		Vector annAt = this.annotationsEndingAt(end);
-		if (annAt == null)
-			return null;
-		Vector result = null;
+		loadPositions(type);
+		Vector<Annotation> result = null;
+		if (type.equals("token")) {
+			int k = firstTokenEndingAt(end);
+			if (k >= 0) {
+				result = new Vector<Annotation>();
+				addTokensEndingAt(k, result);
+			}
+		}
+		int code = AnnotationTypes.lookup(type);
+		List<Annotation> annAt = positionList(annotationsByEnd, end);
+		if (annAt == null || code < 0)
+			return nonEmpty(result);
 		for (int i = 0; i < annAt.size(); i++) {
-			Annotation ann = (Annotation) annAt.get(i);
-			if (ann.type().equals(type)) {
+			Annotation ann = annAt.get(i);
+			if (ann.typeCode() == code && isActive(ann)) {
 				if (result == null)
-					result = new Vector();
+					result = new Vector<Annotation>();
 				result.addElement(ann);
 			}
 		}
-		return result;
+		return nonEmpty(result);
 	}
 
 	/**
@@ -418,15 +1341,8 @@ public class Document implements Serializable {
 	 */
 
 	public Token tokenAt(int start) {
-		Vector annAt = this.annotationsAt(start);
-		if (annAt == null)
-			return null;
-		for (int i = 0; i < annAt.size(); i++) {
-			Annotation ann = (Annotation) annAt.get(i);
-			if (ann instanceof Token)
-				return (Token) ann;
-		}
-		return null;
+		int i = tokenIndexAt(start);
+		return (i < 0) ? null : tokenView(i);
 	}
 
 	/**
@@ -435,15 +1351,47 @@ public class Document implements Serializable {
 	 */
 
 	public Token tokenEndingAt(int end) {
-		Vector annAt = this.annotationsEndingAt(end);
-		if (annAt == null)
-			return null;
-		for (int i = 0; i < annAt.size(); i++) {
-			Annotation ann = (Annotation) annAt.get(i);
-			if (ann instanceof Token)
-				return (Token) ann;
+		int i = tokenIndexEndingAt(end);
+		return (i < 0) ? null : tokenView(i);
+	}
+
+	/**
+	 * Returns the position, in order of ending position, of the first token
+	 * ending at <I>end</I>, or -1 if there is none.
+	 */
+
+	private int firstTokenEndingAt(int end) {
+		int k = tokens.firstEndingAtOrAfter(end);
+		return (k < tokens.size() && tokens.end(tokens.endRow(k)) == end) ? k : -1;
+	}
+
+	/**
+	 * Adds to <I>result</I> the active tokens starting at the start of row
+	 * <I>row</I>, beginning with that row.
+	 */
+
+	private void addTokensStartingAt(int row, List<Annotation> result) {
+		int start = tokens.start(row);
+		for (int i = row; i < tokens.size() && tokens.start(i) == start; i++)
+			if (isActiveToken(i))
+				result.add(tokenView(i));
+	}
+
+	/**
+	 * Adds to <I>result</I> the active tokens ending at the same position as
+	 * the <I>k</I>-th token in order of ending position, beginning with that
+	 * token.
+	 */
+
+	private void addTokensEndingAt(int k, List<Annotation> result) {
+		int end = tokens.end(tokens.endRow(k));
+		for (int j = k; j < tokens.size(); j++) {
+			int i = tokens.endRow(j);
+			if (tokens.end(i) != end)
+				break;
+			if (isActiveToken(i))
+				result.add(tokenView(i));
 		}
-		return null;
 	}
 
 	/**
@@ -452,33 +1400,235 @@ public class Document implements Serializable {
 	 */
 
 	public Vector<Annotation> annotationsOfType(String type) {
-		Vector v = (Vector) annotationsByType.get(type);
-		return activeAnnotations(v);
+		load(type);
+		List<Annotation> v = annotationsByType.get(type);
+		if (!type.equals("token") || tokens.size() == 0)
+			return activeAnnotations(v);
+		Vector<Annotation> result = new Vector<Annotation>(tokens.size());
+		for (int i = 0; i < tokens.size(); i++)
+			if (isActiveToken(i))
+				result.add(tokenView(i));
+		if (v != null)
+			addActive(v, result);
+		return result;
+	}
+
+	/**
+	 * Applies <I>action</I> to each annotation beginning at character position
+	 * <I>start</I>.  Unlike {@link #annotationsAt(int) annotationsAt}, no
+	 * collection is allocated.  <I>action</I> must not add or remove
+	 * annotations on this document.
+	 */
+
+	public void forEachAnnotationAt(int start, Consumer<? super Annotation> action) {
+		loadAll();
+		int row = tokens.rowStartingAt(start);
+		if (row >= 0)
+			for (int i = row; i < tokens.size() && tokens.start(i) == start; i++)
+				if (isActiveToken(i))
+					action.accept(tokenView(i));
+		forEachActive(positionList(annotationsByStart, start), action);
+	}
+
+	/**
+	 * Applies <I>action</I> to each annotation ending at character position
+	 * <I>end</I>, without allocating a collection.  <I>action</I> must not add
+	 * or remove annotations on this document.
+	 */
+
+	public void forEachAnnotationEndingAt(int end, Consumer<? super Annotation> action) {
+		loadAll();
+		int k = firstTokenEndingAt(end);
+		if (k >= 0)
+			for (int j = k; j < tokens.size(); j++) {
+				int i = tokens.endRow(j);
+				if (tokens.end(i) != end)
+					break;
+				if (isActiveToken(i))
+					action.accept(tokenView(i));
+			}
+		forEachActive(positionList(annotationsByEnd, end), action);
+	}
+
+	/**
+	 * Applies <I>action</I> to each annotation of type <I>type</I>, without
+	 * allocating a collection.  <I>action</I> must not add or remove
+	 * annotations on this document.
+	 */
+
+	public void forEachAnnotationOfType(String type, Consumer<? super Annotation> action) {
+		load(type);
+		if (type.equals("token"))
+			for (int i = 0; i < tokens.size(); i++)
+				if (isActiveToken(i))
+					action.accept(tokenView(i));
+		forEachActive(annotationsByType.get(type), action);
+	}
+
+	private void forEachActive(List<Annotation> anns, Consumer<? super Annotation> action) {
+		if (anns == null)
+			return;
+		for (int i = 0; i < anns.size(); i++) {
+			Annotation a = anns.get(i);
+			if (isActive(a))
+				action.accept(a);
+		}
+	}
+
+	/**
+	 * Returns a read-only view of the annotations beginning at character
+	 * position <I>start</I>;  an empty list if there are none.  The view
+	 * reflects later changes to the document, so callers which add or remove
+	 * annotations while iterating should use
+	 * {@link #annotationsAt(int) annotationsAt} instead.  (Where a token
+	 * begins at <I>start</I>, a read-only copy is returned.)
+	 */
+
+	public List<Annotation> annotationListAt(int start) {
+		loadAll();
+		if (tokens.rowStartingAt(start) >= 0)
+			return Collections.unmodifiableList(annotationsAt(start));
+		return activeView(positionList(annotationsByStart, start));
+	}
+
+	/**
+	 * Returns a read-only view of the annotations ending at character
+	 * position <I>end</I>;  an empty list if there are none.  (Where a
+	 * token ends at <I>end</I>, a read-only copy is returned.)
+	 */
+
+	public List<Annotation> annotationListEndingAt(int end) {
+		loadAll();
+		if (firstTokenEndingAt(end) >= 0)
+			return Collections.unmodifiableList(annotationsEndingAt(end));
+		return activeView(positionList(annotationsByEnd, end));
+	}
+
+	/**
+	 * Returns a read-only view of the annotations of type <I>type</I>;  an
+	 * empty list if there are none.  For type "token" the view creates
+	 * Token objects only as elements are retrieved.
+	 */
+
+	public List<Annotation> annotationListOfType(String type) {
+		load(type);
+		List<Annotation> v = annotationsByType.get(type);
+		if (!type.equals("token") || tokens.size() == 0)
+			return activeView(v);
+		if (activeHypotheses == null && (v == null || v.isEmpty()))
+			return new AbstractList<Annotation>() {
+				public Annotation get(int i) {
+					return tokenView(i);
+				}
+				public int size() {
+					return tokens.size();
+				}
+			};
+		return Collections.unmodifiableList(annotationsOfType(type));
+	}
+
+	/**
+	 * returns a read-only view of <I>anns</I>.  If some hypotheses are
+	 * inactive, a filtered copy must be made instead.
+	 */
+
+	private List<Annotation> activeView(List<Annotation> anns) {
+		if (anns == null)
+			return Collections.emptyList();
+		if (activeHypotheses == null)
+			return Collections.unmodifiableList(anns);
+		return Collections.unmodifiableList(activeAnnotations(anns));
 	}
 
 	/**
 	 * Returns a vector of all annotations of type <I>type</I> whose span is
-	 * contained within <I>span</I>. If <I>span</I> is <CODE>null</CODE>,
-	 * all annotations of that type are returned. Returns <CODE>null</CODE> if
-	 * there are no annotations starting at this position.
+	 * contained within <I>span</I>, in order of starting position. If
+	 * <I>span</I> is <CODE>null</CODE>, all annotations of that type are
+	 * returned. Returns <CODE>null</CODE> if there are no such annotations.
 	 */
 
 	public Vector<Annotation> annotationsOfType(String type, Span span) {
-		Vector v = annotationsOfType(type);
-		if (v == null)
-			return null;
 		if (span == null)
-			return v;
-		Vector result = new Vector();
-		for (int i = 0; i < v.size(); i++) {
-			Annotation a = (Annotation) v.get(i);
-			if (a.span().within(span))
-				result.add(a);
+			return annotationsOfType(type);
+		return intervalQuery(type, true, span.start(), span.end());
+	}
+
+	/**
+	 * Returns a vector of all annotations of type <I>type</I> which share at
+	 * least one character with <I>span</I>, in order of starting position.
+	 * Returns <CODE>null</CODE> if there are no such annotations.
+	 */
+
+	public Vector<Annotation> annotationsOverlapping(String type, Span span) {
+		return intervalQuery(type, false, span.start(), span.end());
+	}
+
+	/**
+	 * Returns a vector of all annotations of type <I>type</I> which cover
+	 * character position <I>posn</I> (start &lt;= posn &lt; end), in order
+	 * of starting position. Returns <CODE>null</CODE> if there are no such
+	 * annotations.
+	 */
+
+	public Vector<Annotation> annotationsCovering(String type, int posn) {
+		return intervalQuery(type, false, posn, posn + 1);
+	}
+
+	/**
+	 * Returns the annotations of type <I>type</I> lying within (if
+	 * <I>within</I> is true) or overlapping [<I>start</I>, <I>end</I>),
+	 * in order of starting position, or <CODE>null</CODE> if there are none.
+	 */
+
+	private Vector<Annotation> intervalQuery(String type, boolean within,
+			int start, int end) {
+		final Vector<Annotation> result = new Vector<Annotation>();
+		if (type.equals("token") && tokens.size() > 0) {
+			IntConsumer out = new IntConsumer() {
+				public void accept(int i) {
+					result.add(tokenView(i));
+				}
+			};
+			if (within)
+				tokens.intervals().within(start, end, out);
+			else
+				tokens.intervals().overlapping(start, end, out);
 		}
-		if (result.size() > 0)
-			return result;
-		else
-			return null;
+		IntervalIndex index = intervalIndex(type);
+		if (index != null) {
+			boolean merge = !result.isEmpty();
+			if (within)
+				index.within(start, end, result);
+			else
+				index.overlapping(start, end, result);
+			if (merge)
+				Annotation.sortByStartPosition(result);
+		}
+		return nonEmpty(retainActive(result));
+	}
+
+	/**
+	 * Returns the IntervalIndex over annotations of type <I>type</I>,
+	 * building it if necessary, or <CODE>null</CODE> if there are no
+	 * annotations of this type.  Tokens held in the TokenTable have their
+	 * own index.
+	 */
+
+	private IntervalIndex intervalIndex(String type) {
+		load(type);
+		IntervalIndex index = intervalIndexByType.get(type);
+		if (index == null) {
+			List<Annotation> v = annotationsByType.get(type);
+			if (v == null || v.isEmpty())
+				return null;
+			index = new IntervalIndex(v);
+			intervalIndexByType.put(type, index);
+		}
+		return index;
+	}
+
+	private static Vector<Annotation> nonEmpty(Vector<Annotation> v) {
+		return (v == null || v.isEmpty()) ? null : v;
 	}
 
 	/**
@@ -488,6 +1638,7 @@ public class Document implements Serializable {
 	 */
 
 	public void setCurrentHypothesis(Object hypoId) {
+		checkNotFrozen();
 		currentHypothesis = hypoId;
 	}
 
@@ -499,6 +1650,7 @@ public class Document implements Serializable {
 	 */
 
 	public void setActiveHypotheses(Set hypoIdSet) {
+		checkNotFrozen();
 		activeHypotheses = hypoIdSet;
 	}
 
@@ -508,21 +1660,115 @@ public class Document implements Serializable {
 	 * <code>activeHypotheses</code>.
 	 */
 
-	private Vector<Annotation> activeAnnotations(Vector anns) {
+	private Vector<Annotation> activeAnnotations(List<Annotation> anns) {
 		if (anns == null)
 			return null;
 		if (activeHypotheses == null)
-			return (Vector) anns.clone();
-		Vector newanns = new Vector(anns.size());
+			return new Vector<Annotation>(anns);
+		Vector<Annotation> newanns = new Vector<Annotation>(anns.size());
 		for (int i = 0; i < anns.size(); i++) {
-			Annotation a = (Annotation) anns.get(i);
-			Object hypoId = a.getHypo();
-			if (hypoId == null || activeHypotheses.contains(hypoId))
+			Annotation a = anns.get(i);
+			if (isActive(a))
 				newanns.add(a);
 		}
 		return newanns;
 	}
 
+	/**
+	 * adds to <I>result</I> those annotations in <I>anns</I> which are
+	 * visible given the current <code>activeHypotheses</code>.
+	 */
+
+	private void addActive(List<Annotation> anns, List<Annotation> result) {
+		for (int i = 0; i < anns.size(); i++) {
+			Annotation a = anns.get(i);
+			if (isActive(a))
+				result.add(a);
+		}
+	}
+
+	/**
+	 * removes from <code>anns</code>, which must be a private copy, those
+	 * annotations which are not visible given the current
+	 * <code>activeHypotheses</code>.
+	 */
+
+	private Vector<Annotation> retainActive(Vector<Annotation> anns) {
+		if (activeHypotheses != null) {
+			for (Iterator<Annotation> it = anns.iterator(); it.hasNext();)
+				if (!isActive(it.next()))
+					it.remove();
+		}
+		return anns;
+	}
+
+	/**
+	 * returns true if annotation <I>a</I> should be visible given the current
+	 * <code>activeHypotheses</code>.
+	 */
+
+	private boolean isActive(Annotation a) {
+		if (activeHypotheses == null)
+			return true;
+		Object hypoId = a.getHypo();
+		return hypoId == null || activeHypotheses.contains(hypoId);
+	}
+
+	/**
+	 * Adds <I>anns</I>, which are sorted by start (if <I>byStart</I>) or by
+	 * end, to position index <I>index</I>, looking up each position once.
+	 * Each list in the index is kept in order of ID, even when the
+	 * annotations of one type are entered after those of another.
+	 */
+
+	private static void addRunsToPositionIndex(TIntObjectHashMap index,
+			Annotation[] anns, boolean byStart) {
+		int i = 0;
+		while (i < anns.length) {
+			int posn = byStart ? anns[i].span.start : anns[i].span.end;
+			int j = i + 1;
+			while (j < anns.length
+					&& (byStart ? anns[j].span.start : anns[j].span.end) == posn)
+				j++;
+			List<Annotation> v = positionList(index, posn);
+			if (v == null) {
+				v = new ArrayList<Annotation>(Math.max(2, j - i));
+				index.put(posn, v);
+			}
+			boolean inOrder = v.isEmpty()
+				|| v.get(v.size() - 1).id() < anns[i].id();
+			for (; i < j; i++)
+				v.add(anns[i]);
+			if (!inOrder)
+				Collections.sort(v, BY_ID);
+		}
+	}
+
+	/**
+	 * Returns the list of annotations at position <I>posn</I> of position
+	 * index <I>index</I>, or <B>null</B> if there is none.
+	 */
+
+	@SuppressWarnings("unchecked")
+	private static List<Annotation> positionList(TIntObjectHashMap index, int posn) {
+		return (List<Annotation>) index.get(posn);
+	}
+
+	/**
+	 * Adds <I>ann</I> to the list of annotations at position <I>posn</I> of
+	 * position index <I>index</I>.
+	 */
+
+	private static void addToPositionIndex(TIntObjectHashMap index, int posn,
+			Annotation ann) {
+		List<Annotation> v = positionList(index, posn);
+		if (v == null) {
+			v = new ArrayList<Annotation>(2);
+			index.put(posn, v);
+		}
+		v.add(ann);
+	}
+
 	/**
 	 * Returns a vector of all annotation types. Returns <B>null</B> if there
 	 * are no annotation types. <B>Warning:</B> do not modify the returned
@@ -530,7 +1776,12 @@ public class Document implements Serializable {
 	 */
 
 	public String[] getAnnotationTypes() {
-		return (String[]) annotationsByType.keySet().toArray(new String[0]);
+		loadAll();
+		Set<String> types = new LinkedHashSet<String>();
+		if (tokens.size() > 0)
+			types.add("token");
+		types.addAll(annotationsByType.keySet());
+		return types.toArray(new String[0]);
 	}
 
 	/**
@@ -547,37 +1798,7 @@ public class Document implements Serializable {
 	 */
 
 	public void annotateWithTag(String tag, int start, int end) {
-	    String closeTag = "/" + tag;
-	    int tagStart = 0, tagEnd = 0;
-	    StringBuffer token = null;
-	    boolean collecting = false;
-
-	    for (int i = start; i < end && i < text.length(); ++i) {
-		char c = text.charAt(i);
-		if (c == '<') {
-		    collecting = true;
-		    token = new StringBuffer();
-		    tagEnd = i - 1;
-		} else if (collecting) {
-		    if (c == '>') {
-			collecting = false;
-			// check if we found open tag
-			String tagName = token.toString();
-			if (tagName.equalsIgnoreCase(tag)) {
-			    tagStart = i + 1;
-			    // check if we found close tag, we are done
-			} else if (tagName.equalsIgnoreCase(closeTag)) {
-			    if (tagStart != 0 && tagEnd != 0 && tagStart < tagEnd) {
-				Annotation a = new Annotation(tag, new Span(tagStart, tagEnd));
-				addAnnotation(a);
-			    }
-			    tagStart = 0;
-			}
-		    } else {
-			token.append(c);
-		    }
-		}
-	    }
+		new TagScanner(tag).annotate(this, start, end);
 	}
 
 	/**
@@ -585,12 +1806,15 @@ public class Document implements Serializable {
 	 * between <I>&lt;tag&gt;</I> and <I>&lt;/tag&gt;</I>. Sets type of
 	 * annotation to <I>tag</I> name.
 	 *
+	 * Does nothing if the document has already been annotated for this tag
+	 * (see {@link TagScanner}).
+	 *
 	 * @param tag
 	 *            name of a tag to find a <CODE>Span</CODE> between tags
 	 */
 
 	public void annotateWithTag(String tag) {
-		annotateWithTag(tag, 0, length());
+		new TagScanner(tag).annotate(this);
 	}
 
 	/**
@@ -599,6 +1823,7 @@ public class Document implements Serializable {
 	 */
 
 	public int getNextAnnotationID() {
+		checkNotFrozen();
 		return nextAnnotationID++;
 	}
 
@@ -613,7 +1838,8 @@ public class Document implements Serializable {
 		removeAnnotation(ann);
 		Span s = ann.span();
 		int posn = s.end();
-		while (posn < text.length() && annotationsByStart.get(posn) == null
+		while (posn < length() && annotationsByStart.get(posn) == null
+				&& tokens.rowStartingAt(posn) < 0
 				&& Character.isWhitespace(charAt(posn)))
 			posn++;
 		s.setEnd(posn);
@@ -706,9 +1932,32 @@ public class Document implements Serializable {
 	}
 
        /**
-        *  Returns the annotation with a given ID.
+        *  Returns the annotation with a given ID (in its printed form,
+        *  "#" followed by the number).
 	*/
 	public Annotation annotationWithID (String id) {
-	    return (Annotation)annotationsByID.get(id);
+	    if (id == null || !id.startsWith("#"))
+		return null;
+	    try {
+		return annotationWithID(Integer.parseInt(id.substring(1)));
+	    } catch (NumberFormatException e) {
+		return null;
+	    }
+	}
+
+	/**
+	 * Returns the annotation with ID <I>id</I>, or <B>null</B> if there is
+	 * none.
+	 */
+
+	public Annotation annotationWithID(int id) {
+		if (lazyRecord != null && id > 0
+				&& (id >= annotationsByID.length || annotationsByID[id] == null))
+			lazyRecord.loadID(id);
+		if (id > 0 && id < annotationsByID.length && annotationsByID[id] != null)
+			return annotationsByID[id];
+		// the IDs of tokens are kept in the token table
+		int row = (id > 0) ? tokens.rowWithID(id) : -1;
+		return (row < 0) ? null : tokenView(row);
 	}
 }
@@ -0,0 +1,213 @@
+// -*- tab-width: 4 -*-
+//Title:        JET
+//Version:      1.00
+//Copyright:    Copyright (c) 2000
+//Author:       Ralph Grishman
+//Description:  A Java-based Information Extraction Tool
+
+package edu.nyu.jetlite.tipster;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A shard of a corpus of processed Documents:  a file holding the records of
+ * many Documents, in the format of {@link DocumentWriter}, together with an
+ * index file (the shard's name followed by ".idx") giving the name, offset
+ * and length of each record.
+ * <p>
+ * An archive is opened by mapping the shard into memory.  A Document is
+ * read from it lazily:  its text and token table are read at once, but its
+ * other annotations are read only when they are requested (for example by
+ * {@link Document#annotationsOfType(String) annotationsOfType}), one type at
+ * a time, so that rerunning a later stage of processing over the corpus
+ * reads only the annotations that stage uses.  A Document which has not been
+ * completely read should be used by one thread at a time;  calling
+ * {@link Document#freeze() freeze} reads everything.
+ */
+
+public class DocumentArchive implements Closeable {
+
+	static final int INDEX_MAGIC = 0x4A455458;	// "JETX"
+
+	static final int INDEX_VERSION = 1;
+
+	private FileChannel channel;
+
+	// the whole shard, if it can be mapped as one buffer
+	private ByteBuffer shard;
+
+	private String[] names;
+
+	private long[] offsets;
+
+	private int[] lengths;
+
+	private Map<String, Integer> byName = new HashMap<String, Integer>();
+
+	private DocumentArchive() {
+	}
+
+	/**
+	 * Opens the archive in file <I>shard</I> (and its index).
+	 */
+
+	public static DocumentArchive open(File shard) throws IOException {
+		DocumentArchive archive = new DocumentArchive();
+		archive.readIndex(indexFile(shard));
+		archive.channel = FileChannel.open(shard.toPath(), StandardOpenOption.READ);
+		long size = archive.channel.size();
+		if (size <= Integer.MAX_VALUE)
+			archive.shard = archive.channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		return archive;
+	}
+
+	private static File indexFile(File shard) {
+		return new File(shard.getPath() + ".idx");
+	}
+
+	private void readIndex(File index) throws IOException {
+		DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(index)));
+		try {
+			if (in.readInt() != INDEX_MAGIC)
+				throw new IOException("Not a document archive index: " + index);
+			int version = in.readInt();
+			if (version != INDEX_VERSION)
+				throw new IOException("Unsupported document archive version " + version);
+			int n = in.readInt();
+			names = new String[n];
+			offsets = new long[n];
+			lengths = new int[n];
+			for (int i = 0; i < n; i++) {
+				names[i] = in.readUTF();
+				offsets[i] = in.readLong();
+				lengths[i] = in.readInt();
+				byName.put(names[i], i);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Returns the number of Documents in the archive.
+	 */
+
+	public int size() {
+		return names.length;
+	}
+
+	/**
+	 * Returns the name of the <I>i</I>-th Document.
+	 */
+
+	public String name(int i) {
+		return names[i];
+	}
+
+	/**
+	 * Returns the <I>i</I>-th Document, which is read lazily.
+	 */
+
+	public Document get(int i) throws IOException {
+		if (shard != null)
+			return DocumentReader.read(shard, (int) offsets[i], lengths[i], true);
+		ByteBuffer record = channel.map(FileChannel.MapMode.READ_ONLY, offsets[i], lengths[i]);
+		return DocumentReader.read(record, 0, lengths[i], true);
+	}
+
+	/**
+	 * Returns the Document named <I>name</I>, or <B>null</B> if there is no
+	 * such Document in the archive.
+	 */
+
+	public Document get(String name) throws IOException {
+		Integer i = byName.get(name);
+		return (i == null) ? null : get(i);
+	}
+
+	/**
+	 * Closes the archive.  Documents already returned by <CODE>get</CODE>
+	 * may still be used, since the mapping remains valid.
+	 */
+
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Writes a DocumentArchive.
+	 */
+
+	public static class Writer implements Closeable {
+
+		private File shard;
+
+		private OutputStream out;
+
+		private long offset = 0;
+
+		private List<String> names = new ArrayList<String>();
+
+		private List<Long> offsets = new ArrayList<Long>();
+
+		private List<Integer> lengths = new ArrayList<Integer>();
+
+		/**
+		 * Creates a writer for a new archive in file <I>shard</I>.
+		 */
+
+		public Writer(File shard) throws IOException {
+			this.shard = shard;
+			out = new BufferedOutputStream(new FileOutputStream(shard), 1 << 16);
+		}
+
+		/**
+		 * Adds Document <I>doc</I> to the archive under name <I>name</I>.
+		 */
+
+		public void add(String name, Document doc) throws IOException {
+			add(name, DocumentWriter.toBytes(doc));
+		}
+
+		/**
+		 * Adds <I>record</I>, a Document encoded by
+		 * {@link DocumentWriter#toBytes(Document) DocumentWriter.toBytes}, to
+		 * the archive under name <I>name</I>.
+		 */
+
+		public void add(String name, byte[] record) throws IOException {
+			out.write(record);
+			names.add(name);
+			offsets.add(offset);
+			lengths.add(record.length);
+			offset += record.length;
+		}
+
+		/**
+		 * Finishes the shard and writes its index.
+		 */
+
+		public void close() throws IOException {
+			out.close();
+			DataOutputStream index = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(indexFile(shard))));
+			try {
+				index.writeInt(INDEX_MAGIC);
+				index.writeInt(INDEX_VERSION);
+				index.writeInt(names.size());
+				for (int i = 0; i < names.size(); i++) {
+					index.writeUTF(names.get(i));
+					index.writeLong(offsets.get(i));
+					index.writeInt(lengths.get(i));
+				}
+			} finally {
+				index.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,97 @@
+// -*- tab-width: 4 -*-
+//Title:        JET
+//Version:      1.00
+//Copyright:    Copyright (c) 2000
+//Author:       Ralph Grishman
+//Description:  A Java-based Information Extraction Tool
+
+package edu.nyu.jetlite.tipster;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the text of a Document from a file in a given character set.  The
+ * file is read in a single operation (or, if it is very large, mapped into
+ * memory) and decoded directly into the Document's text.
+ * <p>
+ * Unlike {@link Document#Document(File) new Document(File)}, which reads
+ * the file line by line in the platform's default character set, the text
+ * is exactly the contents of the file:  line endings are left as they are,
+ * and no newline is added at the end.  Bytes which are not valid in the
+ * character set are replaced, as by a Reader.
+ */
+
+public class DocumentLoader {
+
+	/**
+	 * The size, in bytes, above which files are mapped rather than read,
+	 * unless another is given.
+	 */
+
+	public static final long DEFAULT_MAP_THRESHOLD = 16 << 20;
+
+	private final Charset charset;
+
+	private final long mapThreshold;
+
+	/**
+	 * Creates a loader for files in character set <I>charset</I>.
+	 */
+
+	public DocumentLoader(Charset charset) {
+		this(charset, DEFAULT_MAP_THRESHOLD);
+	}
+
+	/**
+	 * Creates a loader for files in character set <I>charset</I>, which maps
+	 * files larger than <I>mapThreshold</I> bytes into memory.
+	 */
+
+	public DocumentLoader(Charset charset, long mapThreshold) {
+		this.charset = charset;
+		this.mapThreshold = mapThreshold;
+	}
+
+	/**
+	 * Returns a new Document whose text is the contents of <I>file</I>.
+	 */
+
+	public Document load(File file) throws IOException {
+		Document doc = new Document();
+		load(file, doc);
+		return doc;
+	}
+
+	/**
+	 * Makes the contents of <I>file</I> the text of <I>doc</I>, removing all
+	 * annotations on <I>doc</I> (as by {@link Document#reset(CharSequence)
+	 * reset}).
+	 */
+
+	public void load(File file, Document doc) throws IOException {
+		doc.reset("");
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			ByteBuffer bytes;
+			if (size > mapThreshold) {
+				bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			} else {
+				bytes = ByteBuffer.allocate((int) size);
+				while (bytes.hasRemaining() && channel.read(bytes) >= 0)
+					;
+				bytes.flip();
+			}
+			CharsetDecoder decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			doc.textForUpdate().append(bytes, decoder);
+		} finally {
+			channel.close();
+		}
+	}
+}
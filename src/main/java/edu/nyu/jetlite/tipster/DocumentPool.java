@@ -0,0 +1,105 @@
+// -*- tab-width: 4 -*-
+//Title:        JET
+//Version:      1.00
+//Copyright:    Copyright (c) 2000
+//Author:       Ralph Grishman
+//Description:  A Java-based Information Extraction Tool
+
+package edu.nyu.jetlite.tipster;
+
+import java.io.*;
+import java.util.ArrayDeque;
+
+/**
+ * A pool of Documents for reuse.  When a long series of documents is
+ * processed one (or a few) at a time, taking each Document from a pool and
+ * returning it when done lets its text buffer, token table and indexes be
+ * reused, rather than allocated afresh for every document.
+ * <p>
+ * A Document returned to the pool with {@link #release(Document) release}
+ * is cleared, so neither it nor any of its annotations may be used
+ * afterwards.  A pool may be shared by several threads.
+ */
+
+public class DocumentPool {
+
+	private final ArrayDeque<Document> free = new ArrayDeque<Document>();
+
+	private final int capacity;
+
+	/**
+	 * Creates a pool which holds up to <I>capacity</I> unused Documents.
+	 */
+
+	public DocumentPool(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns a Document from the pool (or a new one, if the pool is empty)
+	 * with text <I>text</I> and no annotations.
+	 */
+
+	public Document acquire(CharSequence text) {
+		Document doc = take();
+		doc.reset(text);
+		return doc;
+	}
+
+	/**
+	 * Returns a Document from the pool (or a new one, if the pool is empty)
+	 * whose text is the contents of file <I>file</I>.
+	 */
+
+	public Document acquire(File file) throws IOException {
+		Document doc = take();
+		try {
+			doc.reset(file);
+		} catch (IOException e) {
+			release(doc);
+			throw e;
+		}
+		return doc;
+	}
+
+	/**
+	 * Returns a Document from the pool (or a new one, if the pool is empty)
+	 * whose text is the contents of file <I>file</I>, as read by
+	 * <I>loader</I>.
+	 */
+
+	public Document acquire(File file, DocumentLoader loader) throws IOException {
+		Document doc = take();
+		try {
+			loader.load(file, doc);
+		} catch (IOException e) {
+			release(doc);
+			throw e;
+		}
+		return doc;
+	}
+
+	private Document take() {
+		synchronized (free) {
+			if (!free.isEmpty())
+				return free.pop();
+		}
+		return new Document();
+	}
+
+	/**
+	 * Returns <I>doc</I> to the pool.  A frozen Document cannot be reused,
+	 * and is simply dropped, as is any Document beyond the pool's capacity.
+	 */
+
+	public void release(Document doc) {
+		if (doc.isFrozen())
+			return;
+		// cleared now, so that the old annotations can be collected
+		doc.clear();
+		synchronized (free) {
+			if (free.size() < capacity)
+				free.push(doc);
+		}
+	}
+}
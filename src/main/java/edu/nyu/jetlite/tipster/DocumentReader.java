@@ -0,0 +1,364 @@
+// -*- tab-width: 4 -*-
+//Title:        JET
+//Version:      1.00
+//Copyright:    Copyright (c) 2000
+//Author:       Ralph Grishman
+//Description:  A Java-based Information Extraction Tool
+
+package edu.nyu.jetlite.tipster;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Reads Documents written by {@link DocumentWriter}.  The annotations are
+ * restored with their original IDs, and are created by the
+ * {@link AnnotationCodec} for each class, without reflection.  Each section
+ * of a record is read by its own DocumentReader, so that a
+ * {@link DocumentArchive} can defer reading a section until it is needed.
+ */
+
+public class DocumentReader {
+
+	private ByteBuffer buf;
+
+	private int posn;
+
+	private int limit;
+
+	private List<String> strings = new ArrayList<String>();
+
+	private Document doc;
+
+	/**
+	 * Creates a reader for the <I>length</I> bytes of <I>buf</I> beginning
+	 * at <I>offset</I>, which resolves references to annotations on
+	 * <I>doc</I>.
+	 */
+
+	DocumentReader(ByteBuffer buf, int offset, int length, Document doc) {
+		this.buf = buf;
+		this.posn = offset;
+		this.limit = offset + length;
+		this.doc = doc;
+	}
+
+	/**
+	 * Reads the next Document from <I>in</I>.  Returns <B>null</B> if
+	 * <I>in</I> is at end of file.
+	 */
+
+	public static Document read(InputStream in) throws IOException {
+		byte[] header = new byte[12];
+		int n = in.read(header);
+		if (n < 0)
+			return null;
+		readFully(in, header, n, 12 - n);
+		int length = checkHeader(ByteBuffer.wrap(header), 0, Integer.MAX_VALUE);
+		byte[] body = new byte[length];
+		readFully(in, body, 0, length);
+		return decode(ByteBuffer.wrap(body), 0, length, false);
+	}
+
+	/**
+	 * Reads the Document encoded in <I>length</I> bytes of <I>b</I>
+	 * beginning at <I>offset</I>, as produced by
+	 * {@link DocumentWriter#toBytes(Document) DocumentWriter.toBytes}.
+	 */
+
+	public static Document fromBytes(byte[] b, int offset, int length) throws IOException {
+		return read(ByteBuffer.wrap(b), offset, length, false);
+	}
+
+	/**
+	 * Reads the Document record of <I>length</I> bytes beginning at
+	 * <I>offset</I> in <I>buf</I>.  If <I>lazy</I> is true, only the text
+	 * and token table are read now;  the other annotations are read as they
+	 * are requested, so <I>buf</I> must not change while the Document is in
+	 * use.
+	 */
+
+	static Document read(ByteBuffer buf, int offset, int length, boolean lazy) throws IOException {
+		if (length < 12)
+			throw new EOFException("Document record too short");
+		int bodyLength = checkHeader(buf, offset, length - 12);
+		return decode(buf, offset + 12, bodyLength, lazy);
+	}
+
+	private static void readFully(InputStream in, byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			int n = in.read(b, off, len);
+			if (n < 0)
+				throw new EOFException("Document record truncated");
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Checks the record header at <I>offset</I> in <I>buf</I>, returning the
+	 * length of the body, which may be at most <I>available</I>.
+	 */
+
+	private static int checkHeader(ByteBuffer buf, int offset, int available) throws IOException {
+		if (buf.getInt(offset) != DocumentWriter.MAGIC)
+			throw new IOException("Not a document record");
+		int version = buf.getInt(offset + 4);
+		if (version != DocumentWriter.VERSION)
+			throw new IOException("Unsupported document format version " + version);
+		int length = buf.getInt(offset + 8);
+		if (length < 0 || length > available)
+			throw new EOFException("Document record truncated");
+		return length;
+	}
+
+	private static Document decode(ByteBuffer buf, int offset, int length, boolean lazy)
+			throws IOException {
+		DocumentReader in = new DocumentReader(buf, offset, length, null);
+		int flags = in.readInt();
+		Document doc = new Document(in.readUTF8(in.readInt()));
+		in.doc = doc;
+		doc.setLastAnnotationID(in.readInt());
+		// the token table
+		int n = in.readInt();
+		int[] starts = new int[n];
+		int[] ends = new int[n];
+		int prev = 0;
+		for (int i = 0; i < n; i++)
+			prev = starts[i] = prev + in.readInt();
+		for (int i = 0; i < n; i++)
+			ends[i] = starts[i] + in.readSignedInt();
+		int[] ids = new int[n];
+		prev = 0;
+		for (int i = 0; i < n; i++)
+			prev = ids[i] = prev + in.readSignedInt();
+		doc.addTokens(starts, ends, ids, n);
+		TokenTable tokens = doc.tokenTable();
+		for (int i = 0; i < n; i++)
+			tokens.setPos(i, in.readString());
+		// the directory of sections
+		LazyRecord record = new LazyRecord(doc, buf);
+		List<LazyRecord.Section> sections = new ArrayList<LazyRecord.Section>();
+		sections.add(record.tokenSection(in.readInt(), in.readInt(), in.readInt(), in.readInt()));
+		int nGroups = in.readInt();
+		for (int g = 0; g < nGroups; g++) {
+			String codecName = in.readString();
+			AnnotationCodec codec = AnnotationCodecs.forName(codecName);
+			if (codec == null)
+				throw new IOException("No AnnotationCodec named " + codecName);
+			sections.add(record.groupSection(codec, in.readString(), in.readInt(),
+					in.readInt(), in.readInt(), in.readInt()));
+		}
+		for (LazyRecord.Section section : sections)
+			section.offset = in.take(section.length);
+		if (in.posn != in.limit)
+			throw new IOException("Document record has " + (in.limit - in.posn) + " extra bytes");
+		doc.setLazyRecord(record);
+		if (!lazy || (flags & DocumentWriter.FROZEN) != 0)
+			doc.loadAll();
+		if ((flags & DocumentWriter.FROZEN) != 0)
+			doc.freeze();
+		return doc;
+	}
+
+	/**
+	 * Reads a section holding the Token objects for <I>count</I> rows of
+	 * the token table.
+	 */
+
+	void readTokenSection(int count) throws IOException {
+		int[] rows = new int[count];
+		int prev = 0;
+		for (int i = 0; i < count; i++)
+			prev = rows[i] = prev + readInt();
+		List<Annotation> views = new ArrayList<Annotation>(count);
+		for (int i = 0; i < count; i++)
+			views.add(doc.restoreTokenView(rows[i]));
+		readHypos(views);
+		new AnnotationCodecs.MentionCodec().readFeatures(views, this);
+		checkEnd();
+	}
+
+	/**
+	 * Reads a section holding <I>size</I> annotations of type <I>type</I>,
+	 * created by <I>codec</I>.  The annotations are added to the document
+	 * before their features are read, so that references among them can be
+	 * resolved.
+	 */
+
+	void readGroupSection(AnnotationCodec codec, String type, int size) throws IOException {
+		int[] ids = new int[size];
+		int prev = 0;
+		for (int i = 0; i < size; i++)
+			prev = ids[i] = prev + readInt();
+		int[] starts = new int[size];
+		prev = 0;
+		for (int i = 0; i < size; i++)
+			prev = starts[i] = prev + readSignedInt();
+		List<Annotation> group = new ArrayList<Annotation>(size);
+		for (int i = 0; i < size; i++) {
+			Span span = new Span(starts[i], starts[i] + readSignedInt());
+			Annotation a = codec.create(type, span);
+			if (!type.equals(a.type))
+				a.type = type;
+			a.setID(ids[i]);
+			group.add(a);
+		}
+		readHypos(group);
+		doc.addLoaded(group);
+		codec.readFeatures(group, this);
+		checkEnd();
+	}
+
+	private void checkEnd() throws IOException {
+		if (posn != limit)
+			throw new IOException("Document record section has " + (limit - posn)
+					+ " extra bytes");
+	}
+
+	private void readHypos(List<Annotation> anns) throws IOException {
+		for (Annotation a : anns) {
+			int kind = readInt();
+			if (kind == 1)
+				a.setHypo(readString());
+			else if (kind == 2)
+				a.setHypo(readSignedInt());
+			else if (kind != 0)
+				throw new IOException("Invalid hypothesis in document record");
+		}
+	}
+
+	/**
+	 * Reads a non-negative int.
+	 */
+
+	public int readInt() throws IOException {
+		int v = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			if (posn >= limit)
+				throw new EOFException("Document record truncated");
+			byte b = buf.get(posn++);
+			v |= (b & 0x7F) << shift;
+			if (b >= 0)
+				return v;
+		}
+		throw new IOException("Invalid integer in document record");
+	}
+
+	/**
+	 * Reads an int written by writeSignedInt.
+	 */
+
+	public int readSignedInt() throws IOException {
+		int v = readInt();
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	/**
+	 * Reads a String, which may be <B>null</B>.
+	 */
+
+	public String readString() throws IOException {
+		int k = readInt();
+		if (k == 0)
+			return null;
+		if (k <= strings.size())
+			return strings.get(k - 1);
+		if (k != strings.size() + 1)
+			throw new IOException("Invalid string reference in document record");
+		String s = readUTF8(readInt());
+		strings.add(s);
+		return s;
+	}
+
+	/**
+	 * Reads a list of Strings, which may be <B>null</B>.
+	 */
+
+	public List<String> readStrings() throws IOException {
+		int n = readInt();
+		if (n == 0)
+			return null;
+		List<String> list = new ArrayList<String>(n - 1);
+		for (int i = 1; i < n; i++)
+			list.add(readString());
+		return list;
+	}
+
+	/**
+	 * Reads a reference to an annotation, returning the annotation (or
+	 * <B>null</B>).
+	 */
+
+	public Annotation readAnnotation() throws IOException {
+		int id = readInt();
+		if (id == 0)
+			return null;
+		Annotation a = doc.annotationWithID(id);
+		if (a == null)
+			throw new IOException("Invalid annotation reference in document record");
+		return a;
+	}
+
+	/**
+	 * Reads a list of references to annotations, which may be <B>null</B>.
+	 */
+
+	public List<Annotation> readAnnotations() throws IOException {
+		int n = readInt();
+		if (n == 0)
+			return null;
+		List<Annotation> list = new ArrayList<Annotation>(n - 1);
+		for (int i = 1; i < n; i++)
+			list.add(readAnnotation());
+		return list;
+	}
+
+	/**
+	 * Reads a list of references to annotations of class <I>cls</I>, which
+	 * may be <B>null</B>.
+	 */
+
+	public <T extends Annotation> List<T> readAnnotations(Class<T> cls) throws IOException {
+		int n = readInt();
+		if (n == 0)
+			return null;
+		List<T> list = new ArrayList<T>(n - 1);
+		for (int i = 1; i < n; i++) {
+			Annotation a = readAnnotation();
+			if (a != null && !cls.isInstance(a))
+				throw new IOException("Annotation reference of the wrong class in document record");
+			list.add(cls.cast(a));
+		}
+		return list;
+	}
+
+	/**
+	 * Reads <I>n</I> bytes of UTF-8.
+	 */
+
+	private String readUTF8(int n) throws IOException {
+		int p = take(n);
+		if (buf.hasArray())
+			return new String(buf.array(), buf.arrayOffset() + p, n, StandardCharsets.UTF_8);
+		byte[] b = new byte[n];
+		ByteBuffer view = buf.duplicate();
+		view.position(p);
+		view.get(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Skips <I>n</I> bytes, returning the position of the first.
+	 */
+
+	private int take(int n) throws IOException {
+		if (n < 0 || n > limit - posn)
+			throw new EOFException("Document record truncated");
+		int p = posn;
+		posn += n;
+		return p;
+	}
+}
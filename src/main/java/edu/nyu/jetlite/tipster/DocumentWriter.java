@@ -0,0 +1,312 @@
+// -*- tab-width: 4 -*-
+//Title:        JET
+//Version:      1.00
+//Copyright:    Copyright (c) 2000
+//Author:       Ralph Grishman
+//Description:  A Java-based Information Extraction Tool
+
+package edu.nyu.jetlite.tipster;
+
+import edu.nyu.jetlite.Token;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Writes a Document, with its annotations, in a compact binary format which
+ * is read back by {@link DocumentReader}.
+ * <p>
+ * Each document is written as a record:  a 4-byte magic number, the format
+ * version, the length of the rest of the record, and then
+ * <ul>
+ * <li> the text, in UTF-8
+ * <li> the token table, column by column (starts and lengths, IDs, parts
+ *      of speech)
+ * <li> a directory of the sections which follow:  one for the Token objects
+ *      held by the token table (those with state of their own, such as
+ *      dependents), and one for each group of the other annotations,
+ *      grouped by class and type, giving the size, range of IDs and length
+ *      in bytes of each
+ * <li> the sections;  each holds the columns of IDs, starts and lengths (as
+ *      differences, where this keeps them small), and hypotheses of its
+ *      annotations, followed by their features, written by the
+ *      {@link AnnotationCodec} for the class
+ * </ul>
+ * Integers are written as variable-length quantities (7 bits per byte).
+ * Each string is written in full the first time it occurs in a section, and
+ * thereafter by number.  An annotation referred to by another is written as
+ * its ID.  Since each section can be read by itself, a
+ * {@link DocumentArchive} can read the annotations of a type only when
+ * they are needed.
+ */
+
+public class DocumentWriter {
+
+	static final int MAGIC = 0x4A455444;	// "JETD"
+
+	static final int VERSION = 3;
+
+	// flags
+	static final int FROZEN = 1;
+
+	private byte[] buf = new byte[4096];
+
+	private int length = 0;
+
+	private Map<String, Integer> strings = new HashMap<String, Integer>();
+
+	private Document doc;
+
+	private DocumentWriter(Document doc) {
+		this.doc = doc;
+	}
+
+	/**
+	 * Writes <I>doc</I> to <I>out</I>.
+	 */
+
+	public static void write(Document doc, OutputStream out) throws IOException {
+		DocumentWriter w = new DocumentWriter(doc);
+		w.encode();
+		byte[] header = new byte[12];
+		putInt(header, 0, MAGIC);
+		putInt(header, 4, VERSION);
+		putInt(header, 8, w.length);
+		out.write(header);
+		out.write(w.buf, 0, w.length);
+	}
+
+	/**
+	 * Returns <I>doc</I> encoded as a byte array.
+	 */
+
+	public static byte[] toBytes(Document doc) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		write(doc, out);
+		return out.toByteArray();
+	}
+
+	private static void putInt(byte[] b, int i, int v) {
+		b[i] = (byte) (v >>> 24);
+		b[i + 1] = (byte) (v >>> 16);
+		b[i + 2] = (byte) (v >>> 8);
+		b[i + 3] = (byte) v;
+	}
+
+	private void encode() throws IOException {
+		doc.loadAll();
+		writeInt(doc.isFrozen() ? FROZEN : 0);
+		String text = doc.text();
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		writeInt(bytes.length);
+		writeBytes(bytes, bytes.length);
+		writeInt(doc.lastAnnotationID());
+		// the token table
+		TokenTable tokens = doc.tokenTable();
+		int n = tokens.size();
+		writeInt(n);
+		int prev = 0;
+		for (int i = 0; i < n; i++) {
+			writeInt(tokens.start(i) - prev);
+			prev = tokens.start(i);
+		}
+		for (int i = 0; i < n; i++)
+			writeSignedInt(tokens.end(i) - tokens.start(i));
+		prev = 0;
+		for (int i = 0; i < n; i++) {
+			writeSignedInt(tokens.id(i) - prev);
+			prev = tokens.id(i);
+		}
+		for (int i = 0; i < n; i++)
+			writeString(tokens.pos(i));
+		List<DocumentWriter> sections = new ArrayList<DocumentWriter>();
+		// the Token objects (the others are made again as needed)
+		List<Annotation> views = new ArrayList<Annotation>();
+		DocumentWriter section = new DocumentWriter(doc);
+		prev = 0;
+		for (int i = 0; i < n; i++) {
+			Token t = tokens.pinnedView(i);
+			if (t != null) {
+				views.add(t);
+				section.writeInt(i - prev);
+				prev = i;
+			}
+		}
+		section.writeHypos(views);
+		new AnnotationCodecs.MentionCodec().writeFeatures(views, section);
+		writeInt(views.size());
+		writeIDRange(views);
+		writeInt(section.length);
+		sections.add(section);
+		// the other annotations, grouped by class and type
+		Map<List<Object>, List<Annotation>> groups =
+			new LinkedHashMap<List<Object>, List<Annotation>>();
+		for (List<Annotation> v : doc.annotationLists().values())
+			for (Annotation a : v) {
+				List<Object> key = Arrays.asList((Object) a.getClass(), a.type);
+				List<Annotation> group = groups.get(key);
+				if (group == null) {
+					group = new ArrayList<Annotation>();
+					groups.put(key, group);
+				}
+				group.add(a);
+			}
+		writeInt(groups.size());
+		for (List<Annotation> group : groups.values()) {
+			Annotation first = group.get(0);
+			AnnotationCodec codec = AnnotationCodecs.forClass(first.getClass());
+			if (codec == null)
+				throw new IOException("No AnnotationCodec for " + first.getClass().getName());
+			Collections.sort(group, new Comparator<Annotation>() {
+				public int compare(Annotation a, Annotation b) {
+					return Integer.compare(a.id(), b.id());
+				}
+			});
+			section = new DocumentWriter(doc);
+			prev = 0;
+			for (Annotation a : group) {
+				section.writeInt(a.id() - prev);
+				prev = a.id();
+			}
+			prev = 0;
+			for (Annotation a : group) {
+				section.writeSignedInt(a.span.start - prev);
+				prev = a.span.start;
+			}
+			for (Annotation a : group)
+				section.writeSignedInt(a.span.end - a.span.start);
+			section.writeHypos(group);
+			codec.writeFeatures(group, section);
+			writeString(codec.name());
+			writeString(first.type);
+			writeInt(group.size());
+			writeIDRange(group);
+			writeInt(section.length);
+			sections.add(section);
+		}
+		for (DocumentWriter s : sections)
+			writeBytes(s.buf, s.length);
+	}
+
+	/**
+	 * Writes the smallest and largest IDs of <I>anns</I>.
+	 */
+
+	private void writeIDRange(List<Annotation> anns) {
+		int min = Integer.MAX_VALUE;
+		int max = 0;
+		for (Annotation a : anns) {
+			min = Math.min(min, a.id());
+			max = Math.max(max, a.id());
+		}
+		writeInt(anns.isEmpty() ? 0 : min);
+		writeInt(max);
+	}
+
+	private void writeHypos(List<Annotation> anns) throws IOException {
+		for (Annotation a : anns) {
+			Object hypo = a.getHypo();
+			if (hypo == null) {
+				writeInt(0);
+			} else if (hypo instanceof String) {
+				writeInt(1);
+				writeString((String) hypo);
+			} else if (hypo instanceof Integer) {
+				writeInt(2);
+				writeSignedInt((Integer) hypo);
+			} else {
+				throw new IOException("Cannot write hypothesis of " + hypo.getClass().getName());
+			}
+		}
+	}
+
+	/**
+	 * Writes a non-negative int.
+	 */
+
+	public void writeInt(int v) {
+		ensureCapacity(5);
+		while ((v & ~0x7F) != 0) {
+			buf[length++] = (byte) ((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		buf[length++] = (byte) v;
+	}
+
+	/**
+	 * Writes an int which may be negative.
+	 */
+
+	public void writeSignedInt(int v) {
+		writeInt((v << 1) ^ (v >> 31));
+	}
+
+	/**
+	 * Writes a String, which may be <B>null</B>.
+	 */
+
+	public void writeString(String s) {
+		if (s == null) {
+			writeInt(0);
+			return;
+		}
+		Integer k = strings.get(s);
+		if (k != null) {
+			writeInt(k);
+			return;
+		}
+		strings.put(s, strings.size() + 1);
+		writeInt(strings.size());
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		writeInt(bytes.length);
+		writeBytes(bytes, bytes.length);
+	}
+
+	/**
+	 * Writes a list of Strings, which may be <B>null</B>.
+	 */
+
+	public void writeStrings(List<String> list) {
+		if (list == null) {
+			writeInt(0);
+			return;
+		}
+		writeInt(list.size() + 1);
+		for (String s : list)
+			writeString(s);
+	}
+
+	/**
+	 * Writes a reference to annotation <I>a</I>.  A reference to an
+	 * annotation which is not on the document is written as <B>null</B>.
+	 */
+
+	public void writeAnnotation(Annotation a) {
+		writeInt((a != null && doc.annotationWithID(a.id()) == a) ? a.id() : 0);
+	}
+
+	/**
+	 * Writes a list of references to annotations, which may be <B>null</B>.
+	 */
+
+	public void writeAnnotations(List<? extends Annotation> list) {
+		if (list == null) {
+			writeInt(0);
+			return;
+		}
+		writeInt(list.size() + 1);
+		for (Annotation a : list)
+			writeAnnotation(a);
+	}
+
+	private void writeBytes(byte[] b, int n) {
+		ensureCapacity(n);
+		System.arraycopy(b, 0, buf, length, n);
+		length += n;
+	}
+
+	private void ensureCapacity(int n) {
+		if (length + n > buf.length)
+			buf = Arrays.copyOf(buf, Math.max(length + n, 2 * buf.length));
+	}
+}
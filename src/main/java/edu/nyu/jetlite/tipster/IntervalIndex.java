@@ -0,0 +1,235 @@
+// -*- tab-width: 4 -*-
+//Title:        JET
+//Version:      1.00
+//Copyright:    Copyright (c) 2000
+//Author:       Ralph Grishman
+//Description:  A Java-based Information Extraction Tool
+
+package edu.nyu.jetlite.tipster;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * An index over the spans of a set of annotations (normally all the
+ * annotations of one type on a Document) supporting range queries.
+ * <p>
+ * The spans are held in arrays sorted by start.  Over these arrays we lay an
+ * implicit balanced binary tree:  the root of the range [lo, hi) is element
+ * (lo+hi)/2, and each element records the largest end of any span in its
+ * subtree.  This lets the overlap queries skip entire subtrees, so that all
+ * queries take O(log n + k) time, where k is the number of spans returned.
+ * <p>
+ * The index can be built either from a list of annotations, or directly from
+ * arrays of offsets which are already in order (as for the rows of a
+ * TokenTable);  the int-valued query methods report positions in these
+ * arrays.
+ */
+
+class IntervalIndex {
+
+	private Annotation[] anns;
+
+	private int n;
+
+	private int[] starts;
+
+	private int[] ends;
+
+	// maxEnd[i] is the largest end in the subtree rooted at element i
+	private int[] maxEnd;
+
+	/**
+	 * Creates an index over the annotations in <I>v</I>.
+	 */
+
+	IntervalIndex(List<Annotation> v) {
+		n = v.size();
+		anns = v.toArray(new Annotation[n]);
+		Arrays.sort(anns, SpanComparator.instance);
+		starts = new int[n];
+		ends = new int[n];
+		for (int i = 0; i < n; i++) {
+			starts[i] = anns[i].span.start;
+			ends[i] = anns[i].span.end;
+		}
+		maxEnd = new int[n];
+		buildMaxEnd(0, n);
+	}
+
+	/**
+	 * Creates an index over the first <I>n</I> spans given by <I>starts</I>
+	 * and <I>ends</I>, which must be ordered by start.  The arrays are not
+	 * copied, so the index must be discarded if they change.
+	 */
+
+	IntervalIndex(int[] starts, int[] ends, int n) {
+		this.n = n;
+		this.starts = starts;
+		this.ends = ends;
+		maxEnd = new int[n];
+		buildMaxEnd(0, n);
+	}
+
+	private int buildMaxEnd(int lo, int hi) {
+		if (lo >= hi)
+			return Integer.MIN_VALUE;
+		int mid = (lo + hi) >>> 1;
+		int m = ends[mid];
+		m = Math.max(m, buildMaxEnd(lo, mid));
+		m = Math.max(m, buildMaxEnd(mid + 1, hi));
+		maxEnd[mid] = m;
+		return m;
+	}
+
+	/**
+	 * Returns the number of spans in the index.
+	 */
+
+	int size() {
+		return n;
+	}
+
+	/**
+	 * Returns the <I>i</I>-th annotation in order of starting position
+	 * (only for an index built from annotations).
+	 */
+
+	Annotation annotation(int i) {
+		return anns[i];
+	}
+
+	/**
+	 * Adds to <I>result</I>, in order of starting position, the annotations
+	 * whose span lies within [<I>start</I>, <I>end</I>].
+	 */
+
+	void within(int start, int end, final List<Annotation> result) {
+		within(start, end, new IntConsumer() {
+			public void accept(int i) {
+				result.add(anns[i]);
+			}
+		});
+	}
+
+	/**
+	 * Passes to <I>out</I>, in order, the position of each span lying within
+	 * [<I>start</I>, <I>end</I>].
+	 */
+
+	void within(int start, int end, IntConsumer out) {
+		for (int i = firstStartingAtOrAfter(start); i < n && starts[i] <= end; i++)
+			if (ends[i] <= end)
+				out.accept(i);
+	}
+
+	/**
+	 * Adds to <I>result</I>, in order of starting position, the annotations
+	 * which share at least one character with [<I>start</I>, <I>end</I>).
+	 */
+
+	void overlapping(int start, int end, final List<Annotation> result) {
+		overlapping(start, end, new IntConsumer() {
+			public void accept(int i) {
+				result.add(anns[i]);
+			}
+		});
+	}
+
+	/**
+	 * Passes to <I>out</I>, in order, the position of each span which shares
+	 * at least one character with [<I>start</I>, <I>end</I>).
+	 */
+
+	void overlapping(int start, int end, IntConsumer out) {
+		overlapping(0, n, start, end, out);
+	}
+
+	private void overlapping(int lo, int hi, int start, int end, IntConsumer out) {
+		if (lo >= hi)
+			return;
+		int mid = (lo + hi) >>> 1;
+		// nothing in this subtree extends past 'start'
+		if (maxEnd[mid] <= start)
+			return;
+		overlapping(lo, mid, start, end, out);
+		// everything from mid onwards begins at or after 'end'
+		if (starts[mid] >= end)
+			return;
+		if (ends[mid] > start)
+			out.accept(mid);
+		overlapping(mid + 1, hi, start, end, out);
+	}
+
+	/**
+	 * Adds to <I>result</I>, in order of starting position, the annotations
+	 * which cover character position <I>posn</I>.
+	 */
+
+	void covering(int posn, List<Annotation> result) {
+		overlapping(posn, posn + 1, result);
+	}
+
+	/**
+	 * Passes to <I>out</I>, in order, the position of each span which covers
+	 * character position <I>posn</I>.
+	 */
+
+	void covering(int posn, IntConsumer out) {
+		overlapping(posn, posn + 1, out);
+	}
+
+	/**
+	 * Returns the position of the first span (in order of starting position)
+	 * which covers character position <I>posn</I>, or -1 if there is none.
+	 */
+
+	int firstCovering(int posn) {
+		return firstOverlapping(0, n, posn, posn + 1);
+	}
+
+	private int firstOverlapping(int lo, int hi, int start, int end) {
+		if (lo >= hi)
+			return -1;
+		int mid = (lo + hi) >>> 1;
+		if (maxEnd[mid] <= start)
+			return -1;
+		int i = firstOverlapping(lo, mid, start, end);
+		if (i >= 0)
+			return i;
+		if (starts[mid] >= end)
+			return -1;
+		if (ends[mid] > start)
+			return mid;
+		return firstOverlapping(mid + 1, hi, start, end);
+	}
+
+	/**
+	 * Returns the position of the first span starting at or after
+	 * <I>posn</I>.
+	 */
+
+	int firstStartingAtOrAfter(int posn) {
+		int lo = 0, hi = n;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (starts[mid] < posn)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Orders annotations by their spans.
+	 */
+
+	private static class SpanComparator implements Comparator<Annotation> {
+		static SpanComparator instance = new SpanComparator();
+
+		public int compare(Annotation a, Annotation b) {
+			return a.span.compareTo(b.span);
+		}
+	}
+}
@@ -0,0 +1,153 @@
+// -*- tab-width: 4 -*-
+//Title:        JET
+//Version:      1.00
+//Copyright:    Copyright (c) 2000
+//Author:       Ralph Grishman
+//Description:  A Java-based Information Extraction Tool
+
+package edu.nyu.jetlite.tipster;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * The sections of a Document record (see {@link DocumentWriter}) which have
+ * not yet been read.  A Document read lazily from a {@link DocumentArchive}
+ * holds a LazyRecord, and reads the annotations of a type the first time
+ * they are requested.
+ */
+
+class LazyRecord {
+
+	/**
+	 * One section of the record:  the Token objects, or a group of
+	 * annotations of one class and type.
+	 */
+
+	static class Section {
+
+		AnnotationCodec codec;	// null for the Token objects
+
+		String type;
+
+		int size;
+
+		int minID;
+
+		int maxID;
+
+		int offset;
+
+		int length;
+
+		boolean loaded;
+	}
+
+	private Document doc;
+
+	private ByteBuffer buf;
+
+	private Section tokenSection;
+
+	private List<Section> groups = new ArrayList<Section>();
+
+	LazyRecord(Document doc, ByteBuffer buf) {
+		this.doc = doc;
+		this.buf = buf;
+	}
+
+	Section tokenSection(int size, int minID, int maxID, int length) {
+		tokenSection = section(null, null, size, minID, maxID, length);
+		return tokenSection;
+	}
+
+	Section groupSection(AnnotationCodec codec, String type, int size, int minID,
+			int maxID, int length) {
+		Section s = section(codec, type, size, minID, maxID, length);
+		groups.add(s);
+		return s;
+	}
+
+	private static Section section(AnnotationCodec codec, String type, int size,
+			int minID, int maxID, int length) {
+		Section s = new Section();
+		s.codec = codec;
+		s.type = type;
+		s.size = size;
+		s.minID = minID;
+		s.maxID = maxID;
+		s.length = length;
+		return s;
+	}
+
+	/**
+	 * Reads the Token objects of the token table, if not already read.
+	 */
+
+	void loadTokenViews() {
+		load(tokenSection);
+	}
+
+	/**
+	 * Reads the annotations of type <I>type</I>, if not already read.
+	 */
+
+	void loadType(String type) {
+		for (Section s : groups)
+			if (s.type.equals(type))
+				load(s);
+	}
+
+	/**
+	 * Reads the section which may contain the annotation with ID <I>id</I>.
+	 */
+
+	void loadID(int id) {
+		if (id >= tokenSection.minID && id <= tokenSection.maxID)
+			load(tokenSection);
+		for (Section s : groups)
+			if (id >= s.minID && id <= s.maxID)
+				load(s);
+	}
+
+	/**
+	 * Reads all the sections not already read.
+	 */
+
+	void loadAll() {
+		// the types are entered in the order of their first annotations,
+		// as they were on the original document
+		List<Section> pending = new ArrayList<Section>();
+		for (Section s : groups)
+			if (!s.loaded)
+				pending.add(s);
+		Collections.sort(pending, new Comparator<Section>() {
+			public int compare(Section a, Section b) {
+				return Integer.compare(a.minID, b.minID);
+			}
+		});
+		for (Section s : pending)
+			doc.addType(s.type);
+		load(tokenSection);
+		for (Section s : pending)
+			load(s);
+	}
+
+	private void load(Section s) {
+		if (s.loaded || s.size == 0)
+			return;
+		// marked first, since reading the features may lead back here
+		s.loaded = true;
+		DocumentReader in = new DocumentReader(buf, s.offset, s.length, doc);
+		try {
+			if (s.codec == null)
+				in.readTokenSection(s.size);
+			else
+				in.readGroupSection(s.codec, s.type, s.size);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
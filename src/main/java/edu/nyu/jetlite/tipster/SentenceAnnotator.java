@@ -0,0 +1,13 @@
+package edu.nyu.jetlite.tipster;
+
+/**
+ *  An annotator which works on one sentence at a time, without reference to
+ *  the rest of the document, and so may be run on each sentence as soon as
+ *  it has been found.
+ */
+
+public interface SentenceAnnotator {
+
+    public void annotateSentence (Document doc, Span sentence);
+
+}
@@ -0,0 +1,116 @@
+// -*- tab-width: 4 -*-
+//Title:        JET
+//Version:      1.00
+//Copyright:    Copyright (c) 2000
+//Author:       Ralph Grishman
+//Description:  A Java-based Information Extraction Tool
+
+package edu.nyu.jetlite.tipster;
+
+import java.util.Arrays;
+
+/**
+ * Annotates a Document with the spans enclosed by SGML tags (such as
+ * &lt;TEXT&gt; ... &lt;/TEXT&gt;), for a fixed set of tag names, in a single
+ * pass over the text.  Each span, annotated with the tag name as its type,
+ * begins just after the open tag and ends at the character before the
+ * close tag (normally a newline), which is not included.
+ * <p>
+ * Scanning is idempotent:  the Document records which tags have been
+ * scanned for, and {@link #annotate(Document) annotate} does not scan again
+ * for those tags (until the text of the Document is changed, or annotations
+ * of the tag's type are removed).  Nor does it scan for a tag which already
+ * has annotations, as on a Document read back by {@link DocumentReader}.
+ */
+
+public class TagScanner {
+
+	/**
+	 * A scanner for the TEXT tag alone.
+	 */
+
+	public static final TagScanner TEXT = new TagScanner("TEXT");
+
+	private final String[] tags;
+
+	/**
+	 * Creates a scanner for tags <I>tags</I>.  Tag names are matched
+	 * ignoring case.
+	 */
+
+	public TagScanner(String... tags) {
+		this.tags = tags.clone();
+	}
+
+	/**
+	 * Annotates <I>doc</I> with the spans enclosed by each of the tags which
+	 * has not already been scanned for.
+	 */
+
+	public void annotate(Document doc) {
+		boolean[] wanted = new boolean[tags.length];
+		boolean any = false;
+		for (int k = 0; k < tags.length; k++) {
+			wanted[k] = !doc.tagScanned(tags[k])
+				&& doc.annotationListOfType(tags[k]).isEmpty();
+			any |= wanted[k];
+		}
+		if (!any)
+			return;
+		scan(doc, 0, doc.length(), wanted);
+		for (int k = 0; k < tags.length; k++)
+			doc.setTagScanned(tags[k]);
+	}
+
+	/**
+	 * Annotates the spans enclosed by each of the tags within positions
+	 * <I>start</I> to <I>end</I> of <I>doc</I>, whether or not they have
+	 * already been scanned for.
+	 */
+
+	public void annotate(Document doc, int start, int end) {
+		boolean[] wanted = new boolean[tags.length];
+		Arrays.fill(wanted, true);
+		scan(doc, start, end, wanted);
+	}
+
+	private void scan(Document doc, int start, int end, boolean[] wanted) {
+		// the start of the open tag for each tag name (0 if none)
+		int[] tagStart = new int[tags.length];
+		// the position before the most recent '<'
+		int tagEnd = 0;
+		int limit = Math.min(end, doc.length());
+		int i = start;
+		while (i < limit) {
+			if (doc.charAt(i) != '<') {
+				i++;
+				continue;
+			}
+			tagEnd = i - 1;
+			// the tag runs to the next '>';  a '<' first starts a new tag
+			int j = i + 1;
+			char c = 0;
+			while (j < limit && (c = doc.charAt(j)) != '>' && c != '<')
+				j++;
+			if (j >= limit)
+				break;
+			if (c == '<') {
+				i = j;
+				continue;
+			}
+			boolean close = j > i + 1 && doc.charAt(i + 1) == '/';
+			for (int k = 0; k < tags.length; k++) {
+				if (!wanted[k])
+					continue;
+				if (doc.textEqualsIgnoreCase(i + 1, j, tags[k])) {
+					tagStart[k] = j + 1;
+				} else if (close && doc.textEqualsIgnoreCase(i + 2, j, tags[k])) {
+					if (tagStart[k] != 0 && tagEnd != 0 && tagStart[k] < tagEnd)
+						doc.addAnnotation(new Annotation(tags[k], new Span(tagStart[k], tagEnd)));
+					tagStart[k] = 0;
+				}
+			}
+			i = j + 1;
+		}
+	}
+}
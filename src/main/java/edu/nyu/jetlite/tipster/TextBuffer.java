@@ -0,0 +1,253 @@
+// -*- tab-width: 4 -*-
+//Title:        JET
+//Version:      1.00
+//Copyright:    Copyright (c) 2000
+//Author:       Ralph Grishman
+//Description:  A Java-based Information Extraction Tool
+
+package edu.nyu.jetlite.tipster;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.util.Arrays;
+
+/**
+ * The text of a Document:  a growable array of characters.  Unlike a
+ * StringBuffer, it takes no locks, and its subSequences are views of the
+ * array rather than copies.
+ */
+
+class TextBuffer implements CharSequence, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private char[] chars;
+
+	private int length;
+
+	TextBuffer() {
+		chars = new char[16];
+	}
+
+	TextBuffer(CharSequence s) {
+		chars = new char[Math.max(16, s.length())];
+		append(s);
+	}
+
+	public int length() {
+		return length;
+	}
+
+	public char charAt(int posn) {
+		if (posn >= length)
+			throw new StringIndexOutOfBoundsException(posn);
+		return chars[posn];
+	}
+
+	/**
+	 * Returns a view of the characters from <I>start</I> up to <I>end</I>.
+	 * The view shares the array, so it should not be kept across later
+	 * changes to the text.
+	 */
+
+	public CharSequence subSequence(int start, int end) {
+		checkRange(start, end);
+		return new View(chars, start, end);
+	}
+
+	/**
+	 * Returns the characters from <I>start</I> up to <I>end</I> as a String.
+	 */
+
+	String substring(int start, int end) {
+		checkRange(start, end);
+		return new String(chars, start, end - start);
+	}
+
+	/**
+	 * Copies the characters from <I>start</I> up to <I>end</I> into
+	 * <I>dst</I>, beginning at <I>dstBegin</I>.
+	 */
+
+	void getChars(int start, int end, char[] dst, int dstBegin) {
+		checkRange(start, end);
+		System.arraycopy(chars, start, dst, dstBegin, end - start);
+	}
+
+	/**
+	 * Returns true if the text at <I>posn</I> begins with <I>s</I>.
+	 */
+
+	boolean startsWith(String s, int posn) {
+		int n = s.length();
+		if (posn < 0 || posn + n > length)
+			return false;
+		for (int i = 0; i < n; i++)
+			if (chars[posn + i] != s.charAt(i))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Returns true if the characters from <I>start</I> up to <I>end</I> are
+	 * equal to <I>s</I>, ignoring case.
+	 */
+
+	boolean regionEqualsIgnoreCase(int start, int end, String s) {
+		int n = s.length();
+		if (end - start != n || start < 0 || end > length)
+			return false;
+		for (int i = 0; i < n; i++) {
+			char c = chars[start + i];
+			char d = s.charAt(i);
+			if (c != d && Character.toUpperCase(c) != Character.toUpperCase(d)
+					&& Character.toLowerCase(c) != Character.toLowerCase(d))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Appends <I>s</I> to the text.
+	 */
+
+	void append(CharSequence s) {
+		int n = s.length();
+		ensureCapacity(length + n);
+		if (s instanceof String)
+			((String) s).getChars(0, n, chars, length);
+		else
+			for (int i = 0; i < n; i++)
+				chars[length + i] = s.charAt(i);
+		length += n;
+	}
+
+	/**
+	 * Decodes the remaining bytes of <I>bytes</I> with <I>decoder</I>,
+	 * appending the characters directly to the text.
+	 */
+
+	void append(ByteBuffer bytes, CharsetDecoder decoder) throws CharacterCodingException {
+		decoder.reset();
+		ensureCapacity(length + (int) Math.ceil(bytes.remaining() * (double) decoder.maxCharsPerByte()));
+		CharBuffer out = CharBuffer.wrap(chars, length, chars.length - length);
+		boolean flushing = false;
+		while (true) {
+			CoderResult result = flushing ? decoder.flush(out) : decoder.decode(bytes, out, true);
+			if (result.isError())
+				result.throwException();
+			if (result.isOverflow()) {
+				// (the estimate of the length may be short for some charsets)
+				int posn = out.position();
+				ensureCapacity(posn + 1);
+				out = CharBuffer.wrap(chars, posn, chars.length - posn);
+			} else if (flushing) {
+				break;
+			} else {
+				flushing = true;
+			}
+		}
+		length = out.position();
+	}
+
+	void append(char c) {
+		ensureCapacity(length + 1);
+		chars[length++] = c;
+	}
+
+	void setCharAt(int posn, char c) {
+		if (posn >= length)
+			throw new StringIndexOutOfBoundsException(posn);
+		chars[posn] = c;
+	}
+
+	void clear() {
+		length = 0;
+	}
+
+	/**
+	 * Returns the array holding the characters, for changes made in place.
+	 */
+
+	char[] array() {
+		return chars;
+	}
+
+	/**
+	 * Shortens the text to <I>n</I> characters.
+	 */
+
+	void setLength(int n) {
+		if (n < 0 || n > length)
+			throw new StringIndexOutOfBoundsException(n);
+		length = n;
+	}
+
+	/**
+	 * Releases any unused capacity.
+	 */
+
+	void trimToSize() {
+		if (chars.length > length)
+			chars = Arrays.copyOf(chars, length);
+	}
+
+	public String toString() {
+		return new String(chars, 0, length);
+	}
+
+	private void ensureCapacity(int n) {
+		if (n > chars.length)
+			chars = Arrays.copyOf(chars, Math.max(n, 2 * chars.length));
+	}
+
+	private void checkRange(int start, int end) {
+		if (start < 0 || end > length || start > end)
+			throw new StringIndexOutOfBoundsException("start " + start + ", end "
+					+ end + ", length " + length);
+	}
+
+	/**
+	 * A read-only window on a character array.
+	 */
+
+	private static class View implements CharSequence {
+
+		private final char[] chars;
+
+		private final int start;
+
+		private final int end;
+
+		View(char[] chars, int start, int end) {
+			this.chars = chars;
+			this.start = start;
+			this.end = end;
+		}
+
+		public int length() {
+			return end - start;
+		}
+
+		public char charAt(int i) {
+			if (i < 0 || i >= end - start)
+				throw new StringIndexOutOfBoundsException(i);
+			return chars[start + i];
+		}
+
+		public CharSequence subSequence(int s, int e) {
+			if (s < 0 || e > end - start || s > e)
+				throw new StringIndexOutOfBoundsException("start " + s + ", end "
+						+ e + ", length " + (end - start));
+			return new View(chars, start + s, start + e);
+		}
+
+		public String toString() {
+			return new String(chars, start, end - start);
+		}
+	}
+}
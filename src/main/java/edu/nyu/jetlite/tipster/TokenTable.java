@@ -0,0 +1,640 @@
+// -*- tab-width: 4 -*-
+//Title:        JET
+//Version:      1.00
+//Copyright:    Copyright (c) 2000
+//Author:       Ralph Grishman
+//Description:  A Java-based Information Extraction Tool
+
+package edu.nyu.jetlite.tipster;
+
+import edu.nyu.jetlite.Token;
+import java.io.*;
+import java.lang.ref.WeakReference;
+import java.util.*;
+
+/**
+ * The tokens of a Document, stored column-wise:  one row per token, with
+ * the start, end, annotation ID, part of speech, and sentence of each token
+ * held in parallel primitive arrays.  Rows are kept in order of starting
+ * position;  the ID is assigned when the row is added.
+ * <p>
+ * A Token object is created for a row only when some caller asks for it (via
+ * {@link Document#tokenAt(int) tokenAt}, {@link Document#annotationsAt(int)
+ * annotationsAt}, etc.);  it then serves as a view of the row.  The table
+ * holds such a view only weakly, so the same object is returned by later
+ * requests while it is in use, and it is otherwise dropped:  a view is held
+ * for good only once it has state which the row cannot hold (a hypothesis
+ * or mention links, see {@link #pinView(int, Token) pinView}), or if it
+ * was added to the Document as a Token.  Parts of speech are stored as small
+ * integer codes, with a table mapping codes to tag names.
+ */
+
+public class TokenTable implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	// the Document whose tokens these are
+	private Document doc;
+
+	private int size = 0;
+
+	private int[] starts = new int[16];
+
+	private int[] ends = new int[16];
+
+	// annotation ID of each token
+	private int[] ids = new int[16];
+
+	// part-of-speech code for each token;  0 if none has been assigned
+	private short[] posIds = new short[16];
+
+	// sentence number of each token;  -1 if it is not in a sentence.
+	// Recomputed on demand from the sentence annotations (see Document)
+	private int[] sentences = new int[16];
+
+	// sentenceFirst[k] and sentenceEnd[k] delimit the rows of sentence k;
+	// recomputed along with the sentence numbers
+	private transient int[] sentenceFirst = new int[0];
+
+	private transient int[] sentenceEnd = new int[0];
+
+	boolean sentencesStale = true;
+
+	// the Token object for each row:  the Token itself if it is pinned, a
+	// WeakReference to it if not, or null if there is none
+	private transient Object[] views = new Object[16];
+
+	// posNames.get(i-1) is the name of part-of-speech code i
+	private List<String> posNames = new ArrayList<String>();
+
+	private Map<String, Integer> posCodes = new HashMap<String, Integer>();
+
+	// true as long as the rows are in order of ending position too, as is
+	// normally the case;  otherwise rowsByEnd orders them by end
+	private boolean endsSorted = true;
+
+	private transient int[] rowsByEnd = null;
+
+	// the rows in order of ID, built when first needed
+	private transient int[] rowsByID = null;
+
+	private transient IntervalIndex intervals = null;
+
+	private transient boolean frozen = false;
+
+	TokenTable(Document doc) {
+		this.doc = doc;
+	}
+
+	/**
+	 * Returns the number of tokens.
+	 */
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the start of the <I>i</I>-th token.
+	 */
+
+	public int start(int i) {
+		return starts[i];
+	}
+
+	/**
+	 * Returns the end of the <I>i</I>-th token.
+	 */
+
+	public int end(int i) {
+		return ends[i];
+	}
+
+	/**
+	 * Returns the annotation ID of the <I>i</I>-th token.
+	 */
+
+	public int id(int i) {
+		return ids[i];
+	}
+
+	/**
+	 * Returns the part-of-speech code of the <I>i</I>-th token, or 0 if it
+	 * has none.
+	 */
+
+	public short posId(int i) {
+		return posIds[i];
+	}
+
+	/**
+	 * Returns the part of speech of the <I>i</I>-th token, or <B>null</B> if
+	 * it has none.
+	 */
+
+	public String pos(int i) {
+		return posName(posIds[i]);
+	}
+
+	/**
+	 * Returns the part-of-speech tag with code <I>id</I>, or <B>null</B> if
+	 * <I>id</I> is 0.
+	 */
+
+	public String posName(short id) {
+		return (id == 0) ? null : posNames.get(id - 1);
+	}
+
+	/**
+	 * Returns the code for part-of-speech tag <I>pos</I>, assigning a new
+	 * one if necessary.  Returns 0 for <B>null</B>.
+	 */
+
+	public short posCode(String pos) {
+		checkNotFrozen();
+		if (pos == null)
+			return 0;
+		Integer code = posCodes.get(pos);
+		if (code == null) {
+			if (posNames.size() >= Short.MAX_VALUE)
+				throw new IllegalStateException("Too many part-of-speech tags");
+			posNames.add(pos);
+			code = posNames.size();
+			posCodes.put(pos, code);
+		}
+		return code.shortValue();
+	}
+
+	/**
+	 * Sets the part of speech of the <I>i</I>-th token.
+	 */
+
+	public void setPos(int i, String pos) {
+		checkNotFrozen();
+		posIds[i] = posCode(pos);
+	}
+
+	/**
+	 * Returns the number of the sentence containing the <I>i</I>-th token
+	 * (counting sentences in order of starting position from 0), or -1 if
+	 * the token is not part of any sentence.
+	 */
+
+	public int sentence(int i) {
+		if (sentencesStale)
+			doc.assignTokenSentences();
+		return sentences[i];
+	}
+
+	/**
+	 * Returns the number of sentences.
+	 */
+
+	public int sentenceCount() {
+		if (sentencesStale)
+			doc.assignTokenSentences();
+		return sentenceFirst.length;
+	}
+
+	/**
+	 * Returns the row of the first token of sentence <I>k</I>.
+	 */
+
+	public int sentenceFirstToken(int k) {
+		if (sentencesStale)
+			doc.assignTokenSentences();
+		return sentenceFirst[k];
+	}
+
+	/**
+	 * Returns one more than the row of the last token of sentence <I>k</I>.
+	 * If the sentence has no tokens, this is equal to sentenceFirstToken(k).
+	 */
+
+	public int sentenceEndToken(int k) {
+		if (sentencesStale)
+			doc.assignTokenSentences();
+		return sentenceEnd[k];
+	}
+
+	/**
+	 * Returns the row of the first token starting at <I>posn</I>, or -1 if
+	 * no token starts there.
+	 */
+
+	public int rowStartingAt(int posn) {
+		int i = firstStartingAtOrAfter(posn);
+		return (i < size && starts[i] == posn) ? i : -1;
+	}
+
+	/**
+	 * Returns the row of the first token ending at <I>posn</I>, or -1 if
+	 * no token ends there.
+	 */
+
+	public int rowEndingAt(int posn) {
+		int k = firstEndingAtOrAfter(posn);
+		if (k >= size)
+			return -1;
+		int i = endRow(k);
+		return (ends[i] == posn) ? i : -1;
+	}
+
+	/**
+	 * Returns the row of the first token starting at or after <I>posn</I>,
+	 * or size() if there is none.
+	 */
+
+	public int firstStartingAtOrAfter(int posn) {
+		int lo = 0, hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (starts[mid] < posn)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Returns the position, in order of ending position, of the first token
+	 * ending at or after <I>posn</I>.  Use {@link #endRow(int) endRow} to
+	 * convert this position to a row.
+	 */
+
+	int firstEndingAtOrAfter(int posn) {
+		int[] order = endOrder();
+		int lo = 0, hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int row = (order == null) ? mid : order[mid];
+			if (ends[row] < posn)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Returns the row of the <I>k</I>-th token in order of ending position.
+	 */
+
+	int endRow(int k) {
+		int[] order = endOrder();
+		return (order == null) ? k : order[k];
+	}
+
+	/**
+	 * Returns true if the rows are in order of ending position as well as
+	 * starting position.
+	 */
+
+	boolean endsInOrder() {
+		return endsSorted;
+	}
+
+	/**
+	 * Returns the rows in order of ending position, or <B>null</B> if this
+	 * is the same as their natural order.
+	 */
+
+	private int[] endOrder() {
+		if (endsSorted)
+			return null;
+		if (rowsByEnd == null) {
+			Integer[] rows = new Integer[size];
+			for (int i = 0; i < size; i++)
+				rows[i] = i;
+			// a stable sort, so rows with equal ends stay in order
+			Arrays.sort(rows, new Comparator<Integer>() {
+				public int compare(Integer a, Integer b) {
+					return Integer.compare(ends[a], ends[b]);
+				}
+			});
+			int[] order = new int[size];
+			for (int i = 0; i < size; i++)
+				order[i] = rows[i];
+			rowsByEnd = order;
+		}
+		return rowsByEnd;
+	}
+
+	/**
+	 * Returns the row of the token with ID <I>id</I>, or -1 if there is
+	 * none.
+	 */
+
+	int rowWithID(int id) {
+		int[] order = idOrder();
+		int lo = 0, hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int d = ids[order[mid]];
+			if (d < id)
+				lo = mid + 1;
+			else if (d > id)
+				hi = mid;
+			else
+				return order[mid];
+		}
+		return -1;
+	}
+
+	private int[] idOrder() {
+		if (rowsByID == null) {
+			// each key holds the ID in its upper half and the row below
+			long[] keys = new long[size];
+			for (int i = 0; i < size; i++)
+				keys[i] = ((long) ids[i] << 32) | i;
+			Arrays.sort(keys);
+			int[] order = new int[size];
+			for (int i = 0; i < size; i++)
+				order[i] = (int) keys[i];
+			rowsByID = order;
+		}
+		return rowsByID;
+	}
+
+	/**
+	 * Returns an IntervalIndex over the rows.
+	 */
+
+	IntervalIndex intervals() {
+		if (intervals == null)
+			intervals = new IntervalIndex(starts, ends, size);
+		return intervals;
+	}
+
+	/**
+	 * Returns the Token object for row <I>i</I>, or <B>null</B> if there is
+	 * none in use.
+	 */
+
+	Token view(int i) {
+		Object v = views[i];
+		if (v instanceof WeakReference)
+			return (Token) ((WeakReference<?>) v).get();
+		return (Token) v;
+	}
+
+	/**
+	 * Returns the Token object for row <I>i</I> if it is pinned, else
+	 * <B>null</B>.
+	 */
+
+	Token pinnedView(int i) {
+		Object v = views[i];
+		return (v instanceof Token) ? (Token) v : null;
+	}
+
+	/**
+	 * Records <I>t</I> as the view of row <I>i</I>, held weakly.
+	 */
+
+	void cacheView(int i, Token t) {
+		views[i] = new WeakReference<Token>(t);
+	}
+
+	/**
+	 * Holds <I>t</I> as the view of row <I>i</I> for as long as the row
+	 * exists;  called when the Token is given state of its own, which
+	 * would be lost if it were dropped.  Throws IllegalStateException if
+	 * the Document is frozen.
+	 */
+
+	public void pinView(int i, Token t) {
+		checkNotFrozen();
+		views[i] = t;
+	}
+
+	/**
+	 * Adds a token spanning [<I>start</I>, <I>end</I>) with ID <I>id</I>,
+	 * returning its row.  The token is placed after any other tokens with
+	 * the same start.
+	 */
+
+	int add(int start, int end, int id) {
+		checkNotFrozen();
+		int i;
+		if (size == 0 || starts[size - 1] <= start)
+			i = size;
+		else
+			i = firstStartingAtOrAfter(start + 1);
+		ensureCapacity(size + 1);
+		if (i < size) {
+			int tail = size - i;
+			System.arraycopy(starts, i, starts, i + 1, tail);
+			System.arraycopy(ends, i, ends, i + 1, tail);
+			System.arraycopy(ids, i, ids, i + 1, tail);
+			System.arraycopy(posIds, i, posIds, i + 1, tail);
+			System.arraycopy(sentences, i, sentences, i + 1, tail);
+			System.arraycopy(views, i, views, i + 1, tail);
+			renumberViews(i + 1, size + 1);
+		}
+		starts[i] = start;
+		ends[i] = end;
+		ids[i] = id;
+		posIds[i] = 0;
+		sentences[i] = -1;
+		views[i] = null;
+		size++;
+		if ((i > 0 && ends[i - 1] > end) || (i < size - 1 && ends[i + 1] < end))
+			endsSorted = false;
+		changed();
+		return i;
+	}
+
+	/**
+	 * Adds <I>n</I> tokens, the <I>i</I>-th spanning [<I>newStarts[i]</I>,
+	 * <I>newEnds[i]</I>) with ID <I>newIds[i]</I>, returning the row of each.
+	 * The result is the same as calling {@link #add(int, int, int) add} for
+	 * each token in turn, but the new tokens are sorted once and merged with
+	 * the existing rows in a single pass.
+	 */
+
+	int[] addAll(int[] newStarts, int[] newEnds, int[] newIds, int n) {
+		checkNotFrozen();
+		int[] rows = new int[n];
+		if (n == 0)
+			return rows;
+		// order the new tokens by start, keeping ties in the order given:
+		// each key holds the start in its upper half and the index below
+		long[] keys = new long[n];
+		boolean inOrder = true;
+		for (int j = 0; j < n; j++) {
+			keys[j] = ((long) newStarts[j] << 32) | j;
+			if (j > 0 && newStarts[j] < newStarts[j - 1])
+				inOrder = false;
+		}
+		if (!inOrder)
+			Arrays.sort(keys);
+		ensureCapacity(size + n);
+		// merge from the back;  a new token goes after existing tokens with
+		// the same start
+		int i = size - 1;
+		int k = size + n - 1;
+		int lowest = k;
+		for (int j = n - 1; j >= 0; j--, k--) {
+			int t = (int) keys[j];
+			int start = newStarts[t];
+			while (i >= 0 && starts[i] > start) {
+				moveRow(i--, k--);
+			}
+			starts[k] = start;
+			ends[k] = newEnds[t];
+			ids[k] = newIds[t];
+			posIds[k] = 0;
+			sentences[k] = -1;
+			views[k] = null;
+			rows[t] = k;
+			lowest = k;
+		}
+		size += n;
+		if (endsSorted)
+			for (int r = Math.max(lowest, 1); r < size; r++)
+				if (ends[r] < ends[r - 1]) {
+					endsSorted = false;
+					break;
+				}
+		changed();
+		return rows;
+	}
+
+	private void moveRow(int from, int to) {
+		starts[to] = starts[from];
+		ends[to] = ends[from];
+		ids[to] = ids[from];
+		posIds[to] = posIds[from];
+		sentences[to] = sentences[from];
+		views[to] = views[from];
+		Token t = view(to);
+		if (t != null)
+			t.setTableRow(to);
+	}
+
+	/**
+	 * Removes row <I>i</I>.
+	 */
+
+	void remove(int i) {
+		checkNotFrozen();
+		int tail = size - i - 1;
+		System.arraycopy(starts, i + 1, starts, i, tail);
+		System.arraycopy(ends, i + 1, ends, i, tail);
+		System.arraycopy(ids, i + 1, ids, i, tail);
+		System.arraycopy(posIds, i + 1, posIds, i, tail);
+		System.arraycopy(sentences, i + 1, sentences, i, tail);
+		System.arraycopy(views, i + 1, views, i, tail);
+		size--;
+		views[size] = null;
+		renumberViews(i, size);
+		changed();
+	}
+
+	/**
+	 * Removes all rows.
+	 */
+
+	void clear() {
+		checkNotFrozen();
+		for (int j = 0; j < size; j++) {
+			Token t = view(j);
+			if (t != null)
+				t.detach();
+		}
+		Arrays.fill(views, 0, size, null);
+		size = 0;
+		endsSorted = true;
+		changed();
+	}
+
+	/**
+	 * Trims the arrays to size, creates all derived indexes, and prevents
+	 * further changes;  called when the Document is frozen.  Only the
+	 * pinned views are kept:  readers of a frozen document share its
+	 * table, so each is given a new view of any other row.
+	 */
+
+	void freeze() {
+		starts = Arrays.copyOf(starts, size);
+		ends = Arrays.copyOf(ends, size);
+		ids = Arrays.copyOf(ids, size);
+		posIds = Arrays.copyOf(posIds, size);
+		sentences = Arrays.copyOf(sentences, size);
+		views = Arrays.copyOf(views, size);
+		for (int j = 0; j < size; j++)
+			if (!(views[j] instanceof Token))
+				views[j] = null;
+		intervals = null;
+		intervals();
+		endOrder();
+		idOrder();
+		if (sentencesStale)
+			doc.assignTokenSentences();
+		frozen = true;
+	}
+
+	/**
+	 * Sets the sentence numbers from <I>sentenceAnns</I>, the sentences of
+	 * the document in order of starting position.
+	 */
+
+	void assignSentences(List<Annotation> sentenceAnns) {
+		Arrays.fill(sentences, 0, size, -1);
+		int n = sentenceAnns.size();
+		int[] first = new int[n];
+		int[] end = new int[n];
+		for (int k = 0; k < n; k++) {
+			Span s = sentenceAnns.get(k).span;
+			int i = firstStartingAtOrAfter(s.start);
+			first[k] = i;
+			for (; i < size && starts[i] < s.end; i++)
+				sentences[i] = k;
+			end[k] = i;
+		}
+		sentenceFirst = first;
+		sentenceEnd = end;
+		sentencesStale = false;
+	}
+
+	private void renumberViews(int from, int to) {
+		for (int j = from; j < to; j++) {
+			Token t = view(j);
+			if (t != null)
+				t.setTableRow(j);
+		}
+	}
+
+	private void changed() {
+		intervals = null;
+		rowsByEnd = null;
+		rowsByID = null;
+		sentencesStale = true;
+	}
+
+	private void checkNotFrozen() {
+		if (frozen)
+			throw new IllegalStateException("Document is frozen");
+	}
+
+	private void ensureCapacity(int n) {
+		if (n <= starts.length)
+			return;
+		int cap = Math.max(n, starts.length * 2);
+		starts = Arrays.copyOf(starts, cap);
+		ends = Arrays.copyOf(ends, cap);
+		ids = Arrays.copyOf(ids, cap);
+		posIds = Arrays.copyOf(posIds, cap);
+		sentences = Arrays.copyOf(sentences, cap);
+		views = Arrays.copyOf(views, cap);
+	}
+
+	private void readObject(ObjectInputStream in)
+			throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		views = new Object[starts.length];
+		sentencesStale = true;
+	}
+}
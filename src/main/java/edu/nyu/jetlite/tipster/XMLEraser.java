@@ -0,0 +1,186 @@
+// -*- tab-width: 4 -*-
+//Title:        JET
+//Version:      1.00
+//Copyright:    Copyright (c) 2000
+//Author:       Ralph Grishman
+//Description:  A Java-based Information Extraction Tool
+
+package edu.nyu.jetlite.tipster;
+
+import java.util.Arrays;
+
+/**
+ * Removes the XML (or SGML) tags from a text, everything from a '&lt;' up to
+ * the next '&gt;', and keeps a map between offsets in the original (raw)
+ * text and offsets in the text without tags (stripped).  Text may then be
+ * annotated in stripped coordinates, as the ACE APF files are, and the
+ * results projected back onto the raw text.
+ * <p>
+ * The map is a list of runs:  each run is a stretch of characters kept from
+ * the raw text, recorded by its starting offset in both texts.  Mapping an
+ * offset is a binary search over the runs.
+ */
+
+public class XMLEraser {
+
+	private char[] stripped;
+
+	private int length;
+
+	// the runs of characters kept:  run k begins at rawStart[k] in the raw
+	// text and at strippedStart[k] in the stripped text
+	private int[] rawStart = new int[16];
+
+	private int[] strippedStart = new int[16];
+
+	private int runs = 0;
+
+	private int rawLength;
+
+	/**
+	 * Removes the tags from <I>raw</I>.
+	 */
+
+	public XMLEraser(CharSequence raw) {
+		rawLength = raw.length();
+		stripped = new char[rawLength];
+		if (raw instanceof String)
+			((String) raw).getChars(0, rawLength, stripped, 0);
+		else
+			for (int i = 0; i < rawLength; i++)
+				stripped[i] = raw.charAt(i);
+		erase();
+	}
+
+	private XMLEraser(char[] chars, int n) {
+		stripped = chars;
+		rawLength = n;
+		erase();
+	}
+
+	/**
+	 * Removes the tags from the text of <I>doc</I>, in place, returning the
+	 * map between the old and new offsets.  As with
+	 * {@link Document#setText(String) setText}, this should not be done if
+	 * the document has annotations.
+	 */
+
+	public static XMLEraser erase(Document doc) {
+		TextBuffer text = doc.textForUpdate();
+		XMLEraser eraser = new XMLEraser(text.array(), text.length());
+		text.setLength(eraser.length);
+		return eraser;
+	}
+
+	/**
+	 * Removes the tags from the first <I>rawLength</I> characters of
+	 * <I>stripped</I>, writing the result over them;  since the result is
+	 * never longer, each character is read before it can be overwritten.
+	 */
+
+	private void erase() {
+		boolean inTag = false;
+		boolean inRun = false;
+		int n = 0;
+		for (int i = 0; i < rawLength; i++) {
+			char c = stripped[i];
+			if (c == '<')
+				inTag = true;
+			if (!inTag) {
+				if (!inRun)
+					addRun(i, n);
+				stripped[n++] = c;
+			}
+			inRun = !inTag;
+			if (c == '>')
+				inTag = false;
+		}
+		length = n;
+	}
+
+	private void addRun(int raw, int strip) {
+		if (runs == rawStart.length) {
+			rawStart = Arrays.copyOf(rawStart, 2 * runs);
+			strippedStart = Arrays.copyOf(strippedStart, 2 * runs);
+		}
+		rawStart[runs] = raw;
+		strippedStart[runs] = strip;
+		runs++;
+	}
+
+	/**
+	 * Returns the text without tags.
+	 */
+
+	public String text() {
+		return new String(stripped, 0, length);
+	}
+
+	/**
+	 * Returns the length of the text without tags.
+	 */
+
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Returns the offset in the raw text of the character at offset
+	 * <I>posn</I> in the stripped text.  The length of the stripped text is
+	 * mapped to the length of the raw text.
+	 */
+
+	public int toRaw(int posn) {
+		if (posn >= length)
+			return rawLength + (posn - length);
+		int k = lastRunAtOrBefore(strippedStart, posn);
+		return rawStart[k] + (posn - strippedStart[k]);
+	}
+
+	/**
+	 * Returns the offset in the stripped text corresponding to offset
+	 * <I>posn</I> in the raw text.  An offset within a tag is mapped to the
+	 * offset of the first character after the tag.
+	 */
+
+	public int toStripped(int posn) {
+		int k = lastRunAtOrBefore(rawStart, posn);
+		if (k < 0)
+			return 0;
+		int runLength = ((k + 1 < runs) ? strippedStart[k + 1] : length) - strippedStart[k];
+		if (posn - rawStart[k] < runLength)
+			return strippedStart[k] + (posn - rawStart[k]);
+		return strippedStart[k] + runLength;
+	}
+
+	/**
+	 * Returns the span of the raw text corresponding to span <I>s</I> of
+	 * the stripped text.  The span ends after the last character of
+	 * <I>s</I>, so it does not take in any tag following <I>s</I>.
+	 */
+
+	public Span toRaw(Span s) {
+		int start = toRaw(s.start());
+		int end = (s.end() > s.start()) ? toRaw(s.end() - 1) + 1 : start;
+		return new Span(start, end);
+	}
+
+	/**
+	 * Returns the span of the stripped text corresponding to span <I>s</I>
+	 * of the raw text.
+	 */
+
+	public Span toStripped(Span s) {
+		return new Span(toStripped(s.start()), toStripped(s.end()));
+	}
+
+	/**
+	 * Returns the last run whose start (in <I>starts</I>) is at or before
+	 * <I>posn</I>, or -1 if there is none.
+	 */
+
+	private int lastRunAtOrBefore(int[] starts, int posn) {
+		int k = Arrays.binarySearch(starts, 0, runs, posn);
+		return (k >= 0) ? k : -k - 2;
+	}
+}